@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.RungeKutta4;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.storage.QuantizedPoints;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the quantization of a trajectory and the decoding of its points compared to reading floats.
+ * Scores are in points per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactBenchmark {
+	private static final int POINTS = 1_000_000;
+
+	private Series series;
+	private QuantizedPoints quantized;
+
+	@Setup
+	public void setup() {
+		this.series = new Series();
+		this.series.ensureCapacity(POINTS, true);
+		RungeKutta4.apply(new Vector3d(1, 1, 1), 0.001, Function.lorenz(), this.series, null, POINTS);
+		this.series.commit();
+		this.quantized = quantize();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.quantized.release();
+		this.series.release();
+	}
+
+	private QuantizedPoints quantize() {
+		return QuantizedPoints.encode(this.series.getStorage().segments(), this.series.getStorage().shift(), POINTS);
+	}
+
+	/**
+	 * Includes the release of the encoded points.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float encode() {
+		QuantizedPoints q = quantize();
+		float error = q.getMaxError();
+		q.release();
+		return error;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float readFloats() {
+		Series.Snapshot snapshot = this.series.getSnapshot();
+		float sum = 0;
+		for (long i = 0; i < POINTS; i++)
+			sum += snapshot.get(i, 0) + snapshot.get(i, 1) + snapshot.get(i, 2);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public float readQuantized() {
+		float sum = 0;
+		for (long i = 0; i < POINTS; i++)
+			sum += this.quantized.get(i, 0) + this.quantized.get(i, 1) + this.quantized.get(i, 2);
+		return sum;
+	}
+}
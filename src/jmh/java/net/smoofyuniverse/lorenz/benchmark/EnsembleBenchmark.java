@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.lorenz.math.EnsembleRungeKutta4;
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.RungeKutta4;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares advancing many trajectories with {@link EnsembleRungeKutta4} and with one {@link RungeKutta4} per trajectory.
+ * Each invocation computes the same total number of steps whatever the number of trajectories.
+ * Scores are in steps per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnsembleBenchmark {
+	private static final int STEPS = 1 << 20;
+	private static final double H = 0.001;
+
+	@Param({"16", "256", "4096"})
+	public int trajectories;
+
+	private EnsembleRungeKutta4 ensemble;
+	private RungeKutta4[] independent;
+
+	@Setup
+	public void setup() {
+		int iterations = STEPS / this.trajectories;
+		double[] x0 = new double[this.trajectories], y0 = new double[this.trajectories], z0 = new double[this.trajectories];
+		this.independent = new RungeKutta4[this.trajectories];
+		for (int i = 0; i < this.trajectories; i++) {
+			x0[i] = 1 + i * 1E-3;
+			y0[i] = 1;
+			z0[i] = 1;
+			this.independent[i] = new RungeKutta4(new Vector3d(x0[i], y0[i], z0[i]), H, Function.lorenz(), null, null, Long.MAX_VALUE, iterations);
+		}
+		this.ensemble = new EnsembleRungeKutta4(x0, y0, z0, H, Function.lorenz(), null, null, null, iterations);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public double ensemble() {
+		this.ensemble.update();
+		return this.ensemble.getX(0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public double independent() {
+		for (RungeKutta4 r : this.independent)
+			r.update();
+		return this.independent[0].getTime();
+	}
+}
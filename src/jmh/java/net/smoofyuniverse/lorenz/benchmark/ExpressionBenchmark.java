@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.expression.ExpressionSystem;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the evaluation of user equations compiled to bytecode, interpreted from the expression tree,
+ * and the same system written by hand as a lambda.
+ * Scores are in evaluations per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+	private static final int EVALUATIONS = 100_000;
+	private static final double H = 0.001;
+
+	private final Function lambda = (x, y, z, output) -> {
+		output.x = Function.DEFAULT_SIGMA * (y - x);
+		output.y = Function.DEFAULT_RHO * x - y - x * z;
+		output.z = x * y - Function.DEFAULT_BETA * z;
+	};
+
+	private Function compiled, interpreted;
+
+	@Setup
+	public void setup() {
+		ExpressionSystem system = ExpressionSystem.parse(ExpressionSystem.LORENZ);
+		this.compiled = system.compile();
+		this.interpreted = system.interpret();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVALUATIONS)
+	public Vector3d compiled() {
+		return evaluate(this.compiled);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVALUATIONS)
+	public Vector3d interpreted() {
+		return evaluate(this.interpreted);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVALUATIONS)
+	public Vector3d lambda() {
+		return evaluate(this.lambda);
+	}
+
+	/**
+	 * Each evaluation depends on the previous one so that none can be hoisted or skipped.
+	 */
+	private static Vector3d evaluate(Function function) {
+		Vector3d v = new Vector3d(1, 1, 1), k = new Vector3d();
+		for (int i = 0; i < EVALUATIONS; i++) {
+			function.apply(v, k);
+			v.x += H * k.x;
+			v.y += H * k.y;
+			v.z += H * k.z;
+		}
+		return v;
+	}
+}
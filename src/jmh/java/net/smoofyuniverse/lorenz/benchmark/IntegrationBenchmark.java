@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.DormandPrince;
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Integrator;
+import net.smoofyuniverse.lorenz.math.RungeKutta4;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of integrating the Lorenz system with RK4.
+ * Scores are in steps per second, except for {@link #accuracy(Accuracy)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntegrationBenchmark {
+	private static final int STEPS = 100_000;
+	private static final double H = 0.001;
+
+	private final Function lorenz = Function.lorenz();
+	private final Function lambda = (x, y, z, output) -> {
+		output.x = Function.DEFAULT_SIGMA * (y - x);
+		output.y = Function.DEFAULT_RHO * x - y - x * z;
+		output.z = x * y - Function.DEFAULT_BETA * z;
+	};
+	private final IncrementalListener listener = new CountingListener();
+
+	private Series series;
+	private Vector3d v0;
+
+	@Setup
+	public void setup() {
+		this.series = new Series();
+		this.series.setRing(STEPS);
+		this.v0 = new Vector3d(1, 1, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.series.release();
+	}
+
+	/**
+	 * Specialized path for {@link net.smoofyuniverse.lorenz.math.LorenzFunction}.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public Vector3d lorenzFunction() {
+		return RungeKutta4.apply(this.v0, H, this.lorenz, this.series, null, STEPS);
+	}
+
+	/**
+	 * Generic path through the {@link Function} interface.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public Vector3d lambdaFunction() {
+		return RungeKutta4.apply(this.v0, H, this.lambda, this.series, null, STEPS);
+	}
+
+	/**
+	 * Generic path with a listener incremented at every step.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public Vector3d lambdaFunctionWithListener() {
+		return RungeKutta4.apply(this.v0, H, this.lambda, this.series, this.listener, STEPS);
+	}
+
+	/**
+	 * Specialized path with a listener incremented at every block.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public Vector3d lorenzFunctionWithListener() {
+		return RungeKutta4.apply(this.v0, H, this.lorenz, this.series, this.listener, STEPS);
+	}
+
+	/**
+	 * Upper bound: the same computation without storing the points.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public double direct() {
+		double sigma = Function.DEFAULT_SIGMA, rho = Function.DEFAULT_RHO, beta = Function.DEFAULT_BETA, h2 = H / 2D, h6 = H / 6D;
+		double x = 1, y = 1, z = 1;
+		for (int i = 0; i < STEPS; i++) {
+			double k1x = sigma * (y - x), k1y = rho * x - y - x * z, k1z = x * y - beta * z;
+
+			double ax = x + h2 * k1x, ay = y + h2 * k1y, az = z + h2 * k1z;
+			double k2x = sigma * (ay - ax), k2y = rho * ax - ay - ax * az, k2z = ax * ay - beta * az;
+
+			ax = x + h2 * k2x;
+			ay = y + h2 * k2y;
+			az = z + h2 * k2z;
+			double k3x = sigma * (ay - ax), k3y = rho * ax - ay - ax * az, k3z = ax * ay - beta * az;
+
+			ax = x + H * k3x;
+			ay = y + H * k3y;
+			az = z + H * k3z;
+			double k4x = sigma * (ay - ax), k4y = rho * ax - ay - ax * az, k4z = ax * ay - beta * az;
+
+			x += h6 * (k1x + 2 * k2x + 2 * k3x + k4x);
+			y += h6 * (k1y + 2 * k2y + 2 * k3y + k4y);
+			z += h6 * (k1z + 2 * k2z + 2 * k3z + k4z);
+		}
+		return x + y + z;
+	}
+
+	/**
+	 * Integrates from (1, 1, 1) up to {@link Accuracy#T}, scores are in integrations per second.
+	 * The steps, function evaluations and error of each solver are printed at the end of the trial.
+	 */
+	@Benchmark
+	public Integrator accuracy(Accuracy a) {
+		Integrator solver = a.create();
+		solver.update();
+		a.last = solver;
+		return solver;
+	}
+
+	/**
+	 * RK4 with a fixed step against RK45 with a tolerance, the error is measured against RK4 with a step of 1E-5.
+	 */
+	@State(Scope.Thread)
+	public static class Accuracy {
+		public static final double T = 10;
+
+		@Param({"RK4 1E-2", "RK4 1E-3", "RK4 1E-4", "RK45 1E-6", "RK45 1E-8", "RK45 1E-10"})
+		public String solver;
+
+		private final Function function = Function.lorenz();
+		private Integrator.Type type;
+		private double value;
+		private Series output;
+		private Vector3d reference;
+		private Integrator last;
+
+		@Setup
+		public void setup() {
+			String[] args = this.solver.split(" ");
+			this.type = args[0].equals(Integrator.Type.RUNGE_KUTTA_4.displayName) ? Integrator.Type.RUNGE_KUTTA_4 : Integrator.Type.DORMAND_PRINCE;
+			this.value = Double.parseDouble(args[1]);
+			this.output = new Series();
+			this.output.setRing(16);
+			this.reference = RungeKutta4.apply(new Vector3d(1, 1, 1), 1E-5, this.function, null, null, (int) Math.round(T / 1E-5));
+		}
+
+		Integrator create() {
+			Vector3d v0 = new Vector3d(1, 1, 1);
+			if (this.type == Integrator.Type.RUNGE_KUTTA_4)
+				return new RungeKutta4(v0, this.value, this.function, null, null, Math.round(T / this.value), Integer.MAX_VALUE);
+
+			// A single point emitted at T, interpolated between the last two steps
+			this.output.clear();
+			return new DormandPrince(v0, T, this.value, this.value * 1E-3, this.function, this.output, null, 1, Integer.MAX_VALUE);
+		}
+
+		@TearDown
+		public void report() {
+			Vector3d end;
+			if (this.type == Integrator.Type.RUNGE_KUTTA_4) {
+				end = this.last.getCurrent();
+			} else {
+				long i = this.output.size() - 1;
+				end = new Vector3d(this.output.get(i, 0), this.output.get(i, 1), this.output.get(i, 2));
+			}
+			double dx = end.x - this.reference.x, dy = end.y - this.reference.y, dz = end.z - this.reference.z;
+			System.out.printf("%s: %d steps, %d evaluations, error %.1e%n", this.solver, this.last.getSteps(), this.last.getEvaluations(), Math.sqrt(dx * dx + dy * dy + dz * dz));
+			this.output.release();
+		}
+	}
+
+	static final class CountingListener implements IncrementalListener {
+		private volatile boolean cancelled;
+		private long count;
+
+		@Override
+		public void increment(long value) {
+			this.count += value;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return this.cancelled;
+		}
+
+		@Override
+		public void setCancelled(boolean value) {
+			this.cancelled = value;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Pyramid;
+import net.smoofyuniverse.lorenz.math.RungeKutta4;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates the work done on the CPU to prepare a frame, without OpenGL.
+ * Uploads are replaced by copies to a direct buffer, which is what the driver does with the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=1g")
+public class RenderBenchmark {
+	private static final int TAIL = 10_000;
+
+	@Param({"1000000", "10000000"})
+	public int points;
+
+	private Series series;
+	private ByteBuffer staging;
+
+	@Setup
+	public void setup() {
+		this.series = new Series();
+		this.series.setLevelOfDetail(true);
+		this.series.ensureCapacity(this.points, true);
+		RungeKutta4.apply(new Vector3d(1, 1, 1), 0.001, Function.lorenz(), this.series, null, this.points);
+		this.series.commit();
+
+		this.staging = ByteBuffer.allocateDirect(this.points * 12).order(ByteOrder.nativeOrder());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.series.release();
+	}
+
+	/**
+	 * Uploads the whole series, as done when it is first displayed.
+	 */
+	@Benchmark
+	public ByteBuffer fullUpload() {
+		return copy(this.series.getSnapshot(), 0);
+	}
+
+	/**
+	 * Uploads the last points, as done at each frame while the solver runs.
+	 */
+	@Benchmark
+	public ByteBuffer tailUpload() {
+		Series.Snapshot snapshot = this.series.getSnapshot();
+		return copy(snapshot, snapshot.size - TAIL);
+	}
+
+	/**
+	 * Selects and uploads the decimated level for a series covering about a quarter of a 1080p screen.
+	 */
+	@Benchmark
+	public ByteBuffer decimatedUpload() {
+		Pyramid pyramid = this.series.getPyramid();
+		return copy(pyramid.select(540L * 540 * 4).getSnapshot(), 0);
+	}
+
+	/**
+	 * Reads each point through the bounds checked accessor, as done by simple loops over a series.
+	 */
+	@Benchmark
+	public double iterate() {
+		Series.Snapshot snapshot = this.series.getSnapshot();
+		double sum = 0;
+		for (long i = 0; i < snapshot.size; i++)
+			sum += snapshot.get(i, 0) + snapshot.get(i, 1) + snapshot.get(i, 2);
+		return sum;
+	}
+
+	private ByteBuffer copy(Series.Snapshot snapshot, long from) {
+		ByteBuffer out = this.staging.clear();
+		int first = (int) (from >>> snapshot.shift), count = snapshot.segmentCount();
+		for (int i = first; i < count; i++) {
+			FloatBuffer segment = snapshot.segments[i].duplicate();
+			int start = i == first ? (int) (from & ((1L << snapshot.shift) - 1)) * 3 : 0;
+			segment.limit(snapshot.segmentLength(i) * 3).position(start);
+			out.asFloatBuffer().put(segment);
+			out.position(out.position() + (snapshot.segmentLength(i) * 3 - start) * 4);
+		}
+		return out.flip();
+	}
+}
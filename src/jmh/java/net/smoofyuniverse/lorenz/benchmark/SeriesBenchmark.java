@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.benchmark;
+
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appending points to a series, including the growth of its storage.
+ * Scores are in points per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeriesBenchmark {
+	private static final int POINTS = 1_000_000, BLOCK_SIZE = 1024;
+
+	@Param({"DIRECT", "MAPPED"})
+	public Storage.Type storage;
+
+	@Param({"false", "true"})
+	public boolean levelOfDetail;
+
+	private final float[] block = new float[BLOCK_SIZE * 3];
+	private Series series;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		this.series = new Series();
+		this.series.setStorage(this.storage);
+		this.series.setLevelOfDetail(this.levelOfDetail);
+		for (int i = 0; i < this.block.length; i++)
+			this.block[i] = i;
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() {
+		this.series.release();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public Series addPoints() {
+		for (int i = 0; i < POINTS; i++)
+			this.series.add(i, i, i);
+		return this.series;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public Series addBlocks() {
+		for (int i = 0; i < POINTS; i += BLOCK_SIZE)
+			this.series.add(this.block, 0, Math.min(BLOCK_SIZE, POINTS - i));
+		return this.series;
+	}
+
+	/**
+	 * Same as {@link #addPoints()} without growth.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public Series addPointsPresized() {
+		this.series.ensureCapacity(POINTS, true);
+		for (int i = 0; i < POINTS; i++)
+			this.series.add(i, i, i);
+		return this.series;
+	}
+}
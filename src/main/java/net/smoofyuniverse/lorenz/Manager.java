@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -24,23 +24,28 @@ package net.smoofyuniverse.lorenz;
 
 import com.jogamp.newt.event.WindowAdapter;
 import com.jogamp.newt.event.WindowEvent;
+import com.jogamp.newt.event.WindowUpdateEvent;
 import com.jogamp.newt.opengl.GLWindow;
 import com.jogamp.opengl.GLCapabilities;
 import com.jogamp.opengl.GLProfile;
 import net.smoofyuniverse.common.app.ApplicationManager;
+import net.smoofyuniverse.lorenz.monitoring.Metrics;
 import net.smoofyuniverse.lorenz.ui.fx.UserInterface;
 import net.smoofyuniverse.lorenz.ui.gl.*;
 import net.smoofyuniverse.lorenz.util.Loop;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class Manager {
-	private final Loop renderLoop = new Loop(), controlLoop = new Loop(), processingLoop = new Loop();
+	private final Loop renderLoop = new Loop("Render"), controlLoop = new Loop("Control"), processingLoop = new Loop("Processing");
 	private final Camera camera = new Camera();
 	private final ScatterChart chart = new ScatterChart();
-	private final Controller controller = new Controller(this.renderLoop, this.camera);
+	private final Controller controller = new Controller(this.renderLoop, this.processingLoop, this.camera);
 	private final GLWindow window;
 
 	public Manager(ApplicationManager app) {
-		GLProfile glp = GLProfile.getDefault();
+		// A compatibility profile enables shaders while keeping the fixed function overlay
+		GLProfile glp = GLProfile.isAvailable(GLProfile.GL3bc) ? GLProfile.get(GLProfile.GL3bc) : GLProfile.getDefault();
 		GLCapabilities caps = new GLCapabilities(glp);
 		caps.setDoubleBuffered(false);
 
@@ -50,11 +55,25 @@ public class Manager {
 		this.window.addMouseListener(this.controller);
 		this.window.addGLEventListener(new Renderer(this.camera, this.chart, this.controller));
 
+		Animator animator = new Animator(this.window, this.camera, this.chart, this.controller);
+		animator.setMinFrequency(1);
+		this.controller.animator = animator;
+
 		this.window.addWindowListener(new WindowAdapter() {
 			@Override
 			public void windowDestroyNotify(WindowEvent e) {
 				app.shutdown();
 			}
+
+			@Override
+			public void windowResized(WindowEvent e) {
+				animator.markDirty();
+			}
+
+			@Override
+			public void windowRepaint(WindowUpdateEvent e) {
+				animator.markDirty();
+			}
 		});
 
 		this.window.setSize(1000, 800);
@@ -62,10 +81,15 @@ public class Manager {
 
 		this.renderLoop.setPrefFrequency(60);
 		this.controlLoop.setPrefFrequency(30);
+		// Camera moves by a fixed amount per update
+		this.controlLoop.setOverrun(Loop.Overrun.CATCH_UP);
 		this.processingLoop.setPrefFrequency(30);
+		this.processingLoop.setPool(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
 
-		this.renderLoop.updatables.add(new Animator(this.window));
+		this.renderLoop.updatables.add(animator);
 		this.controlLoop.updatables.add(this.controller);
+
+		new Metrics(animator, this.processingLoop).register();
 	}
 
 	public void start() {
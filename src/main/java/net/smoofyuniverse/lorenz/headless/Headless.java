@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.headless;
+
+import net.smoofyuniverse.lorenz.math.DenseOutput;
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Integrator;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batch mode computing trajectories without any display.
+ * Each job streams its points to a file of little-endian float triplets or to a CSV file.
+ * With a stride, only sparse samples are computed in memory and the written points are interpolated between them.
+ */
+public final class Headless {
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	private final List<Job> jobs = new ArrayList<>();
+	private Path output = Paths.get("output");
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean csv;
+
+	public static void main(String[] args) {
+		Headless headless = new Headless();
+		try {
+			headless.parseArguments(args);
+		} catch (IllegalArgumentException | IOException e) {
+			System.err.println(e.getMessage());
+			printUsage();
+			System.exit(2);
+			return;
+		}
+
+		if (headless.jobs.isEmpty()) {
+			printUsage();
+			System.exit(2);
+			return;
+		}
+
+		try {
+			headless.run();
+		} catch (Exception e) {
+			System.err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+			System.exit(1);
+		}
+	}
+
+	private static void printUsage() {
+		System.err.println("Usage: Headless [-o <directory>] [-t <threads>] [--csv] [-f <file>]... [<job>]...");
+		System.err.println("  A job is a list of key=value pairs: sigma, rho, beta, x0, y0, z0, h, rtol, atol, points, integrator (RK4 or RK45),");
+		System.err.println("  storage (direct or mapped, in a temporary file), stride and resolution (RK4 only, points written between two stored samples)");
+		System.err.println("  and optionally equations, which must come last, e.g. \"points=1000000 h=0.001 rho=28\".");
+		System.err.println("  A file contains one job per line, lines starting with '#' are ignored.");
+	}
+
+	private void parseArguments(String[] args) throws IOException {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-o":
+					this.output = Paths.get(argument(args, ++i));
+					break;
+				case "-t":
+					this.threads = Integer.parseInt(argument(args, ++i));
+					if (this.threads <= 0)
+						throw new IllegalArgumentException("Invalid thread count");
+					break;
+				case "-f":
+					for (String line : Files.readAllLines(Paths.get(argument(args, ++i)))) {
+						line = line.trim();
+						if (!line.isEmpty() && !line.startsWith("#"))
+							this.jobs.add(Job.parse(line));
+					}
+					break;
+				case "--csv":
+					this.csv = true;
+					break;
+				default:
+					this.jobs.add(Job.parse(args[i]));
+					break;
+			}
+		}
+	}
+
+	private static String argument(String[] args, int i) {
+		if (i >= args.length)
+			throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+		return args[i];
+	}
+
+	private void run() throws Exception {
+		Files.createDirectories(this.output);
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.threads, this.jobs.size()));
+		long start = System.nanoTime();
+
+		List<Future<Long>> results = new ArrayList<>();
+		for (int i = 0; i < this.jobs.size(); i++) {
+			Job job = this.jobs.get(i);
+			Path file = this.output.resolve("job-" + i + (this.csv ? ".csv" : ".bin"));
+			results.add(executor.submit(() -> run(job, file)));
+		}
+
+		long total = 0;
+		try {
+			for (int i = 0; i < results.size(); i++) {
+				long points = results.get(i).get();
+				total += points;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - start) / 1E9;
+		System.out.println(String.format(Locale.ROOT, "%d job(s), %d points in %.3f s: %.2f M points/s with %d thread(s)",
+				this.jobs.size(), total, seconds, total / seconds / 1E6, Math.min(this.threads, this.jobs.size())));
+	}
+
+	private long run(Job job, Path file) throws IOException {
+		long start = System.nanoTime();
+
+		Function function = job.createFunction();
+		Vector3d v0 = new Vector3d(job.x0, job.y0, job.z0);
+		Series series = new Series(), output = series;
+		series.setStorage(job.storage);
+
+		DenseOutput dense = null;
+		int resolution = 0;
+		double[] previous = null;
+		if (job.stride != 1) {
+			dense = new DenseOutput(job.stride, job.h, job.storage);
+			series.setDenseOutput(dense);
+			resolution = job.resolution == 0 ? job.stride : job.resolution;
+			output = new Series();
+			output.ensureCapacity(CHUNK_SIZE, true);
+
+			Vector3d f0 = new Vector3d();
+			function.apply(v0, f0);
+			previous = new double[]{v0.x, v0.y, v0.z, f0.x, f0.y, f0.z};
+		}
+		series.ensureCapacity((CHUNK_SIZE + job.stride - 1) / job.stride, true);
+		Integrator solver = Integrator.create(job.integrator, v0, job.h, job.rtol, job.atol, function, series, null, job.points, CHUNK_SIZE);
+
+		long count = 0, written = 0;
+		if (this.csv) {
+			try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+				writer.write("x,y,z");
+				writer.newLine();
+				while (count < job.points) {
+					series.clear();
+					solver.update();
+					if (series.size() == 0)
+						break;
+					count += series.size() * job.stride;
+					if (dense != null)
+						reconstruct(series, dense, resolution, previous, output);
+					long size = output.size();
+
+					for (int i = 0; i < output.segmentCount(); i++) {
+						FloatBuffer segment = output.getSegment(i);
+						int length = output.segmentLength(i) * 3;
+						for (int j = 0; j < length; j += 3) {
+							writer.write(Float.toString(segment.get(j)));
+							writer.write(',');
+							writer.write(Float.toString(segment.get(j + 1)));
+							writer.write(',');
+							writer.write(Float.toString(segment.get(j + 2)));
+							writer.newLine();
+						}
+					}
+					written += size;
+				}
+			}
+		} else {
+			// Segments are written as they are on little-endian hosts, otherwise they are swapped through a staging buffer
+			boolean swap = ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN;
+			ByteBuffer bytes = swap ? ByteBuffer.allocateDirect(CHUNK_SIZE * 12).order(ByteOrder.LITTLE_ENDIAN) : null;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (count < job.points) {
+					series.clear();
+					solver.update();
+					if (series.size() == 0)
+						break;
+					count += series.size() * job.stride;
+					if (dense != null)
+						reconstruct(series, dense, resolution, previous, output);
+					long size = output.size();
+
+					for (int i = 0; i < output.segmentCount(); i++) {
+						int length = output.segmentLength(i);
+						if (swap) {
+							FloatBuffer segment = output.getSegment(i).duplicate();
+							segment.clear().limit(length * 3);
+							for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+								int n = Math.min(CHUNK_SIZE, length - offset);
+								segment.limit((offset + n) * 3).position(offset * 3);
+								bytes.clear();
+								bytes.asFloatBuffer().put(segment);
+								bytes.limit(n * 12);
+								while (bytes.hasRemaining())
+									channel.write(bytes);
+							}
+						} else {
+							ByteBuffer segment = output.getSegmentBytes(i);
+							segment.clear().limit(length * 12);
+							while (segment.hasRemaining())
+								channel.write(segment);
+						}
+					}
+					written += size;
+				}
+			}
+		}
+
+		series.release();
+		if (output != series)
+			output.release();
+
+		double seconds = (System.nanoTime() - start) / 1E9;
+		System.out.println(String.format(Locale.ROOT, "%s: %d points in %.3f s (%.2f M points/s)", file.getFileName(), written, seconds, written / seconds / 1E6));
+		return written;
+	}
+
+	/**
+	 * Interpolates the points between the samples of the chunk, starting from the last sample of the previous chunk.
+	 *
+	 * @param previous The last sample of the previous chunk, updated to the last sample of this chunk.
+	 */
+	private static void reconstruct(Series samples, DenseOutput dense, int resolution, double[] previous, Series output) {
+		Series.Snapshot states = samples.getSnapshot(), derivatives = dense.getDerivatives().getSnapshot();
+		double[] next = new double[6];
+		float[] block = new float[resolution * 3];
+
+		output.clear();
+		for (long i = 0; i < states.size; i++) {
+			DenseOutput.read(states, derivatives, i, next);
+			DenseOutput.interpolate(previous, next, dense.getInterval(), resolution, block, 0);
+			output.add(block, 0, resolution);
+			System.arraycopy(next, 0, previous, 0, 6);
+		}
+	}
+}
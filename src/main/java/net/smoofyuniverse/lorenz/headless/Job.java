@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.headless;
+
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Integrator;
+import net.smoofyuniverse.lorenz.math.expression.ExpressionSystem;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
+
+import java.util.Locale;
+
+/**
+ * Headless counterpart of LorenzConfig.
+ */
+public final class Job {
+	public double sigma = Function.DEFAULT_SIGMA, rho = Function.DEFAULT_RHO, beta = Function.DEFAULT_BETA, x0 = 1, y0 = 1, z0 = 1, h = 0.001, rtol = 1E-6, atol = 1E-9;
+	public long points = 100000;
+	/**
+	 * Steps between two stored samples and points written for each interval between two samples, 0 for one per step.
+	 */
+	public int stride = 1, resolution;
+	public Integrator.Type integrator = Integrator.Type.RUNGE_KUTTA_4;
+	public Storage.Type storage = Storage.Type.DIRECT;
+	public String equations;
+
+	public Function createFunction() {
+		if (this.equations == null || this.equations.isBlank())
+			return Function.lorenz(this.sigma, this.rho, this.beta);
+		return ExpressionSystem.parse(this.equations).toFunction();
+	}
+
+	/**
+	 * Parses a list of key=value pairs separated by spaces or commas.
+	 * The equations key must come last as its value extends to the end of the line.
+	 */
+	public static Job parse(String line) {
+		Job job = new Job();
+		int pos = 0;
+		while (pos < line.length()) {
+			char c = line.charAt(pos);
+			if (c == ' ' || c == ',' || c == '\t') {
+				pos++;
+				continue;
+			}
+
+			int eq = line.indexOf('=', pos);
+			if (eq == -1)
+				throw new IllegalArgumentException("Missing '=' after '" + line.substring(pos) + "'");
+			String key = line.substring(pos, eq).trim().toLowerCase(Locale.ROOT);
+
+			if (key.equals("equations")) {
+				job.equations = line.substring(eq + 1).trim();
+				break;
+			}
+
+			int end = eq + 1;
+			while (end < line.length() && line.charAt(end) != ' ' && line.charAt(end) != ',' && line.charAt(end) != '\t')
+				end++;
+			job.set(key, line.substring(eq + 1, end));
+			pos = end;
+		}
+		if (job.stride != 1 && job.integrator != Integrator.Type.RUNGE_KUTTA_4)
+			throw new IllegalArgumentException("Key 'stride' requires integrator RK4");
+		return job;
+	}
+
+	private void set(String key, String value) {
+		try {
+			switch (key) {
+				case "sigma":
+					this.sigma = Double.parseDouble(value);
+					break;
+				case "rho":
+					this.rho = Double.parseDouble(value);
+					break;
+				case "beta":
+					this.beta = Double.parseDouble(value);
+					break;
+				case "x0":
+					this.x0 = Double.parseDouble(value);
+					break;
+				case "y0":
+					this.y0 = Double.parseDouble(value);
+					break;
+				case "z0":
+					this.z0 = Double.parseDouble(value);
+					break;
+				case "h":
+					this.h = Double.parseDouble(value);
+					break;
+				case "rtol":
+					this.rtol = Double.parseDouble(value);
+					break;
+				case "atol":
+					this.atol = Double.parseDouble(value);
+					break;
+				case "points":
+					this.points = Long.parseLong(value);
+					break;
+				case "integrator":
+					this.integrator = parseIntegrator(value);
+					break;
+				case "storage":
+					this.storage = parseStorage(value);
+					break;
+				case "stride":
+					this.stride = Integer.parseInt(value);
+					if (this.stride <= 0)
+						throw new IllegalArgumentException("Invalid stride '" + value + "'");
+					break;
+				case "resolution":
+					this.resolution = Integer.parseInt(value);
+					if (this.resolution < 0)
+						throw new IllegalArgumentException("Invalid resolution '" + value + "'");
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown key '" + key + "'");
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value '" + value + "' for key '" + key + "'");
+		}
+	}
+
+	private static Integrator.Type parseIntegrator(String value) {
+		for (Integrator.Type type : Integrator.Type.values()) {
+			if (type.displayName.equalsIgnoreCase(value) || type.name().equalsIgnoreCase(value))
+				return type;
+		}
+		throw new IllegalArgumentException("Unknown integrator '" + value + "'");
+	}
+
+	private static Storage.Type parseStorage(String value) {
+		for (Storage.Type type : Storage.Type.values()) {
+			if (type.name().equalsIgnoreCase(value))
+				return type;
+		}
+		throw new IllegalArgumentException("Unknown storage '" + value + "'");
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import java.util.function.IntToDoubleFunction;
+
+public final class BifurcationData {
+	final double[] sigma, rho, beta;
+	final float[] values;
+	final int[] counts;
+	final int maxima;
+
+	BifurcationData(double[] sigma, double[] rho, double[] beta, int maxima) {
+		this.sigma = sigma;
+		this.rho = rho;
+		this.beta = beta;
+		this.maxima = maxima;
+		this.values = new float[sigma.length * maxima];
+		this.counts = new int[sigma.length];
+	}
+
+	public int size() {
+		return this.counts.length;
+	}
+
+	public double getSigma(int index) {
+		return this.sigma[index];
+	}
+
+	public double getRho(int index) {
+		return this.rho[index];
+	}
+
+	public double getBeta(int index) {
+		return this.beta[index];
+	}
+
+	public int count(int index) {
+		return this.counts[index];
+	}
+
+	public float get(int index, int i) {
+		if (i < 0 || i >= this.counts[index])
+			throw new IndexOutOfBoundsException(i);
+		return this.values[index * this.maxima + i];
+	}
+
+	public int total() {
+		int total = 0;
+		for (int c : this.counts)
+			total += c;
+		return total;
+	}
+
+	public void toSeries(IntToDoubleFunction abscissa, Series series) {
+		series.clear();
+		series.ensureCapacity(total(), true);
+		for (int i = 0; i < this.counts.length; i++) {
+			float x = (float) abscissa.applyAsDouble(i);
+			int offset = i * this.maxima;
+			for (int j = 0; j < this.counts[i]; j++)
+				series.add(x, this.values[offset + j], 0);
+		}
+		series.commit();
+	}
+}
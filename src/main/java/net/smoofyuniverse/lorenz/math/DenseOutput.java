@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.lorenz.math.storage.Storage;
+
+/**
+ * Derivatives of a series that only keeps one state out of {@code stride} steps.
+ * Intermediate states are reconstructed on demand by cubic Hermite interpolation between consecutive samples.
+ * The sample at index i is the state after (i + 1) * stride steps.
+ */
+public final class DenseOutput {
+	private final Series derivatives = new Series();
+	private final int stride;
+	private final double interval;
+
+	public DenseOutput(int stride, double h, Storage.Type storage) {
+		if (stride <= 0)
+			throw new IllegalArgumentException("stride");
+		this.stride = stride;
+		this.interval = stride * h;
+		this.derivatives.setStorage(storage);
+	}
+
+	/**
+	 * @return The number of steps between two samples.
+	 */
+	public int getStride() {
+		return this.stride;
+	}
+
+	/**
+	 * @return The time between two samples.
+	 */
+	public double getInterval() {
+		return this.interval;
+	}
+
+	/**
+	 * @return The derivative at each sample, in the same order as the states.
+	 */
+	public Series getDerivatives() {
+		return this.derivatives;
+	}
+
+	/**
+	 * Reads a sample as 6 values: the state then its derivative.
+	 */
+	public static void read(Series.Snapshot states, Series.Snapshot derivatives, long index, double[] sample) {
+		for (int c = 0; c < 3; c++) {
+			sample[c] = states.get(index, c);
+			sample[c + 3] = derivatives.get(index, c);
+		}
+	}
+
+	/**
+	 * Writes the given number of points evenly spaced in time after the previous sample, the last one being the next sample.
+	 *
+	 * @param previous   The state and derivative at the start of the interval.
+	 * @param next       The state and derivative at the end of the interval.
+	 * @param resolution The number of points to write.
+	 * @return The offset after the last written value.
+	 */
+	public static int interpolate(double[] previous, double[] next, double interval, int resolution, float[] output, int offset) {
+		for (int j = 1; j <= resolution; j++) {
+			double theta = j / (double) resolution;
+			for (int c = 0; c < 3; c++)
+				output[offset++] = (float) Hermite.interpolate(previous[c], previous[c + 3], next[c], next[c + 3], interval, theta);
+		}
+		return offset;
+	}
+}
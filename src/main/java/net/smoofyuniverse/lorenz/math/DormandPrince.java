@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import net.smoofyuniverse.lorenz.monitoring.SolverBatchEvent;
+
+/**
+ * Embedded Runge-Kutta 5(4) method of Dormand and Prince with error controlled step size.
+ * Points are emitted either at every accepted step (interval of 0) or at a fixed interval using cubic Hermite interpolation.
+ */
+public final class DormandPrince implements Integrator {
+	private static final double C2 = 1 / 5D, C3 = 3 / 10D, C4 = 4 / 5D, C5 = 8 / 9D;
+	private static final double A21 = 1 / 5D,
+			A31 = 3 / 40D, A32 = 9 / 40D,
+			A41 = 44 / 45D, A42 = -56 / 15D, A43 = 32 / 9D,
+			A51 = 19372 / 6561D, A52 = -25360 / 2187D, A53 = 64448 / 6561D, A54 = -212 / 729D,
+			A61 = 9017 / 3168D, A62 = -355 / 33D, A63 = 46732 / 5247D, A64 = 49 / 176D, A65 = -5103 / 18656D,
+			A71 = 35 / 384D, A73 = 500 / 1113D, A74 = 125 / 192D, A75 = -2187 / 6784D, A76 = 11 / 84D;
+	private static final double E1 = 71 / 57600D, E3 = -71 / 16695D, E4 = 71 / 1920D, E5 = -17253 / 339200D, E6 = 22 / 525D, E7 = -1 / 40D;
+	private static final double SAFETY = 0.9, MIN_FACTOR = 0.2, MAX_FACTOR = 5;
+
+	private final double interval, rtol, atol;
+	private final Function function;
+	private final Series series;
+	private IncrementalListener listener;
+	private long limit;
+	private int iterationsPerUpdate;
+
+	private Vector3d current, next, previous = new Vector3d(), k1 = new Vector3d(), k7 = new Vector3d(), previousK1 = new Vector3d();
+	private final Vector3d k2 = new Vector3d(), k3 = new Vector3d(), k4 = new Vector3d(), k5 = new Vector3d(), k6 = new Vector3d(), output = new Vector3d();
+
+	private double time, step, previousStep;
+	private long steps, rejected, evaluations, emitted, outputs = 1;
+	private boolean pending;
+
+	public DormandPrince(Vector3d v0, double interval, double rtol, double atol, Function function, Series series, IncrementalListener listener, long limit, int iterationsPerUpdate) {
+		if (rtol < 0)
+			throw new IllegalArgumentException("rtol");
+		if (atol < 0)
+			throw new IllegalArgumentException("atol");
+		if (rtol == 0 && atol == 0)
+			throw new IllegalArgumentException("tolerance");
+
+		this.current = v0.copy();
+		this.next = new Vector3d();
+		this.interval = interval;
+		this.rtol = rtol;
+		this.atol = atol;
+		this.function = function;
+		this.series = series;
+		this.listener = listener;
+		this.limit = limit;
+		this.iterationsPerUpdate = iterationsPerUpdate;
+
+		this.function.apply(this.current, this.k1);
+		this.evaluations = 1;
+		this.step = initialStep();
+	}
+
+	private double initialStep() {
+		double d0 = norm(this.current, this.current), d1 = norm(this.k1, this.current);
+		double h = d0 < 1E-5 || d1 < 1E-5 ? 1E-6 : 0.01 * d0 / d1;
+		if (this.interval != 0) {
+			h = Math.min(h, Math.abs(this.interval));
+			if (this.interval < 0)
+				h = -h;
+		}
+		return h;
+	}
+
+	private double norm(Vector3d v, Vector3d scale) {
+		double x = v.x / (this.atol + this.rtol * Math.abs(scale.x)),
+				y = v.y / (this.atol + this.rtol * Math.abs(scale.y)),
+				z = v.z / (this.atol + this.rtol * Math.abs(scale.z));
+		return Math.sqrt((x * x + y * y + z * z) / 3D);
+	}
+
+	@Override
+	public void update() {
+		SolverBatchEvent event = new SolverBatchEvent();
+		event.begin();
+		long steps = this.steps;
+
+		// Iterations are steps, the points of the last step are emitted before returning
+		int i = 0;
+		while (this.emitted < this.limit && (this.listener == null || !this.listener.isCancelled())) {
+			if (this.pending) {
+				double t = this.outputs * this.interval;
+				if (this.interval > 0 ? t <= this.time : t >= this.time) {
+					Hermite.interpolate(this.previous, this.previousK1, this.current, this.k1, this.previousStep, (t - (this.time - this.previousStep)) / this.previousStep, this.output);
+					emit(this.output);
+					this.outputs++;
+					continue;
+				}
+				this.pending = false;
+			}
+			if (i == this.iterationsPerUpdate)
+				break;
+
+			step();
+			i++;
+
+			if (this.interval == 0)
+				emit(this.current);
+			else
+				this.pending = true;
+		}
+		if (this.series != null)
+			this.series.commit();
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.integrator = Type.DORMAND_PRINCE.displayName;
+			event.steps = this.steps - steps;
+			event.commit();
+		}
+	}
+
+	private void emit(Vector3d v) {
+		this.emitted++;
+		if (this.listener != null)
+			this.listener.increment(1);
+		if (this.series != null)
+			this.series.add(v);
+	}
+
+	private void step() {
+		Vector3d y = this.current, y1 = this.next;
+		Function f = this.function;
+		double h = this.step;
+		boolean rejected = false;
+
+		while (true) {
+			f.apply(y.x + h * A21 * this.k1.x, y.y + h * A21 * this.k1.y, y.z + h * A21 * this.k1.z, this.k2);
+			f.apply(y.x + h * (A31 * this.k1.x + A32 * this.k2.x),
+					y.y + h * (A31 * this.k1.y + A32 * this.k2.y),
+					y.z + h * (A31 * this.k1.z + A32 * this.k2.z), this.k3);
+			f.apply(y.x + h * (A41 * this.k1.x + A42 * this.k2.x + A43 * this.k3.x),
+					y.y + h * (A41 * this.k1.y + A42 * this.k2.y + A43 * this.k3.y),
+					y.z + h * (A41 * this.k1.z + A42 * this.k2.z + A43 * this.k3.z), this.k4);
+			f.apply(y.x + h * (A51 * this.k1.x + A52 * this.k2.x + A53 * this.k3.x + A54 * this.k4.x),
+					y.y + h * (A51 * this.k1.y + A52 * this.k2.y + A53 * this.k3.y + A54 * this.k4.y),
+					y.z + h * (A51 * this.k1.z + A52 * this.k2.z + A53 * this.k3.z + A54 * this.k4.z), this.k5);
+			f.apply(y.x + h * (A61 * this.k1.x + A62 * this.k2.x + A63 * this.k3.x + A64 * this.k4.x + A65 * this.k5.x),
+					y.y + h * (A61 * this.k1.y + A62 * this.k2.y + A63 * this.k3.y + A64 * this.k4.y + A65 * this.k5.y),
+					y.z + h * (A61 * this.k1.z + A62 * this.k2.z + A63 * this.k3.z + A64 * this.k4.z + A65 * this.k5.z), this.k6);
+
+			y1.x = y.x + h * (A71 * this.k1.x + A73 * this.k3.x + A74 * this.k4.x + A75 * this.k5.x + A76 * this.k6.x);
+			y1.y = y.y + h * (A71 * this.k1.y + A73 * this.k3.y + A74 * this.k4.y + A75 * this.k5.y + A76 * this.k6.y);
+			y1.z = y.z + h * (A71 * this.k1.z + A73 * this.k3.z + A74 * this.k4.z + A75 * this.k5.z + A76 * this.k6.z);
+
+			f.apply(y1, this.k7);
+			this.evaluations += 6;
+
+			double ex = h * (E1 * this.k1.x + E3 * this.k3.x + E4 * this.k4.x + E5 * this.k5.x + E6 * this.k6.x + E7 * this.k7.x),
+					ey = h * (E1 * this.k1.y + E3 * this.k3.y + E4 * this.k4.y + E5 * this.k5.y + E6 * this.k6.y + E7 * this.k7.y),
+					ez = h * (E1 * this.k1.z + E3 * this.k3.z + E4 * this.k4.z + E5 * this.k5.z + E6 * this.k6.z + E7 * this.k7.z);
+
+			ex /= this.atol + this.rtol * Math.max(Math.abs(y.x), Math.abs(y1.x));
+			ey /= this.atol + this.rtol * Math.max(Math.abs(y.y), Math.abs(y1.y));
+			ez /= this.atol + this.rtol * Math.max(Math.abs(y.z), Math.abs(y1.z));
+			double error = Math.sqrt((ex * ex + ey * ey + ez * ez) / 3D);
+
+			if (error <= 1) {
+				double factor = error == 0 ? MAX_FACTOR : Math.min(MAX_FACTOR, SAFETY * Math.pow(error, -0.2));
+				if (rejected && factor > 1)
+					factor = 1;
+
+				this.time += h;
+				this.previousStep = h;
+				this.step = h * factor;
+				this.steps++;
+
+				this.next = this.previous;
+				this.previous = y;
+				this.current = y1;
+
+				Vector3d k = this.previousK1;
+				this.previousK1 = this.k1;
+				this.k1 = this.k7;
+				this.k7 = k;
+				return;
+			}
+
+			this.rejected++;
+			rejected = true;
+			h *= Math.max(MIN_FACTOR, SAFETY * Math.pow(error, -0.2));
+			if (this.time + h == this.time)
+				throw new IllegalStateException("Step size underflow");
+		}
+	}
+
+	@Override
+	public void setIterationsPerUpdate(int iterations) {
+		if (iterations <= 0)
+			throw new IllegalArgumentException("iterations");
+		this.iterationsPerUpdate = iterations;
+	}
+
+	@Override
+	public void extend(long limit, IncrementalListener listener) {
+		if (limit < this.emitted)
+			throw new IllegalArgumentException("limit");
+		this.limit = limit;
+		this.listener = listener;
+	}
+
+	@Override
+	public Vector3d getCurrent() {
+		return this.current.copy();
+	}
+
+	@Override
+	public double getTime() {
+		return this.time;
+	}
+
+	@Override
+	public long getSteps() {
+		return this.steps;
+	}
+
+	public long getRejectedSteps() {
+		return this.rejected;
+	}
+
+	@Override
+	public long getEvaluations() {
+		return this.evaluations;
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.util.Updatable;
+
+/**
+ * Runge-Kutta 4 solver advancing many trajectories at once.
+ * States are kept as a structure of arrays and processed by blocks small enough to stay in cache,
+ * so that each stage runs as a tight loop over primitive arrays.
+ * The snapshot series, if any, is switched to streaming mode with one point per member and receives the current states at each update.
+ */
+public final class EnsembleRungeKutta4 implements Updatable {
+	public static final int BLOCK_SIZE = 256;
+
+	private final int size;
+	private final double[] x, y, z;
+	private final double h;
+	private final Function function;
+	private final Series[] series;
+	private final Series snapshot;
+	private final IncrementalListener listener;
+	private final int iterationsPerUpdate;
+
+	private final double[] vx, vy, vz, tx, ty, tz, kx, ky, kz, sx, sy, sz;
+	private final float[] block;
+
+	public EnsembleRungeKutta4(double[] x0, double[] y0, double[] z0, double h, Function function, Series[] series, Series snapshot, IncrementalListener listener, int iterationsPerUpdate) {
+		if (x0.length != y0.length || x0.length != z0.length)
+			throw new IllegalArgumentException("length");
+		if (series != null && series.length != x0.length)
+			throw new IllegalArgumentException("series");
+
+		this.size = x0.length;
+		this.x = x0.clone();
+		this.y = y0.clone();
+		this.z = z0.clone();
+		this.h = h;
+		this.function = function;
+		this.series = series;
+		this.snapshot = snapshot;
+		this.listener = listener;
+		this.iterationsPerUpdate = iterationsPerUpdate;
+
+		int block = Math.min(this.size, BLOCK_SIZE);
+		this.vx = new double[block];
+		this.vy = new double[block];
+		this.vz = new double[block];
+		this.tx = new double[block];
+		this.ty = new double[block];
+		this.tz = new double[block];
+		this.kx = new double[block];
+		this.ky = new double[block];
+		this.kz = new double[block];
+		this.sx = new double[block];
+		this.sy = new double[block];
+		this.sz = new double[block];
+		this.block = snapshot == null ? null : new float[block * 3];
+
+		// New states overwrite the previous ones, so nothing is cleared nor reallocated
+		if (snapshot != null)
+			snapshot.setRing(this.size);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public double getX(int i) {
+		return this.x[i];
+	}
+
+	public double getY(int i) {
+		return this.y[i];
+	}
+
+	public double getZ(int i) {
+		return this.z[i];
+	}
+
+	@Override
+	public void update() {
+		if (this.listener != null && this.listener.isCancelled())
+			return;
+
+		for (int offset = 0; offset < this.size; offset += BLOCK_SIZE)
+			apply(offset, Math.min(BLOCK_SIZE, this.size - offset), this.iterationsPerUpdate);
+		if (this.listener != null)
+			this.listener.increment(this.iterationsPerUpdate);
+
+		if (this.series != null) {
+			for (Series s : this.series)
+				s.commit();
+		}
+
+		if (this.snapshot != null)
+			this.snapshot.commit();
+	}
+
+	private void apply(int offset, int length, int iterations) {
+		double h = this.h, h2 = h / 2D, h6 = h / 6D;
+		double[] vx = this.vx, vy = this.vy, vz = this.vz, tx = this.tx, ty = this.ty, tz = this.tz,
+				kx = this.kx, ky = this.ky, kz = this.kz, sx = this.sx, sy = this.sy, sz = this.sz;
+
+		System.arraycopy(this.x, offset, vx, 0, length);
+		System.arraycopy(this.y, offset, vy, 0, length);
+		System.arraycopy(this.z, offset, vz, 0, length);
+
+		for (int it = 0; it < iterations; it++) {
+			this.function.apply(vx, vy, vz, kx, ky, kz, length);
+			for (int i = 0; i < length; i++) {
+				sx[i] = kx[i];
+				sy[i] = ky[i];
+				sz[i] = kz[i];
+				tx[i] = vx[i] + h2 * kx[i];
+				ty[i] = vy[i] + h2 * ky[i];
+				tz[i] = vz[i] + h2 * kz[i];
+			}
+
+			this.function.apply(tx, ty, tz, kx, ky, kz, length);
+			for (int i = 0; i < length; i++) {
+				sx[i] += 2 * kx[i];
+				sy[i] += 2 * ky[i];
+				sz[i] += 2 * kz[i];
+				tx[i] = vx[i] + h2 * kx[i];
+				ty[i] = vy[i] + h2 * ky[i];
+				tz[i] = vz[i] + h2 * kz[i];
+			}
+
+			this.function.apply(tx, ty, tz, kx, ky, kz, length);
+			for (int i = 0; i < length; i++) {
+				sx[i] += 2 * kx[i];
+				sy[i] += 2 * ky[i];
+				sz[i] += 2 * kz[i];
+				tx[i] = vx[i] + h * kx[i];
+				ty[i] = vy[i] + h * ky[i];
+				tz[i] = vz[i] + h * kz[i];
+			}
+
+			this.function.apply(tx, ty, tz, kx, ky, kz, length);
+			for (int i = 0; i < length; i++) {
+				vx[i] += h6 * (sx[i] + kx[i]);
+				vy[i] += h6 * (sy[i] + ky[i]);
+				vz[i] += h6 * (sz[i] + kz[i]);
+			}
+
+			if (this.series != null) {
+				for (int i = 0; i < length; i++)
+					this.series[offset + i].add((float) vx[i], (float) vy[i], (float) vz[i]);
+			}
+		}
+
+		System.arraycopy(vx, 0, this.x, offset, length);
+		System.arraycopy(vy, 0, this.y, offset, length);
+		System.arraycopy(vz, 0, this.z, offset, length);
+
+		if (this.snapshot != null) {
+			float[] block = this.block;
+			for (int i = 0; i < length; i++) {
+				block[i * 3] = (float) vx[i];
+				block[i * 3 + 1] = (float) vy[i];
+				block[i * 3 + 2] = (float) vz[i];
+			}
+			this.snapshot.add(block, 0, length);
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -33,15 +33,21 @@ public interface Function {
 
 	void apply(double x, double y, double z, Vector3d output);
 
+	default void apply(double[] x, double[] y, double[] z, double[] dx, double[] dy, double[] dz, int length) {
+		Vector3d v = new Vector3d();
+		for (int i = 0; i < length; i++) {
+			apply(x[i], y[i], z[i], v);
+			dx[i] = v.x;
+			dy[i] = v.y;
+			dz[i] = v.z;
+		}
+	}
+
 	static Function lorenz() {
 		return lorenz(DEFAULT_SIGMA, DEFAULT_RHO, DEFAULT_BETA);
 	}
 
 	static Function lorenz(double sigma, double rho, double beta) {
-		return (x, y, z, output) -> {
-			output.x = sigma * (y - x);
-			output.y = rho * x - y - x * z;
-			output.z = x * y - beta * z;
-		};
+		return new LorenzFunction(sigma, rho, beta);
 	}
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+
+public final class Hermite {
+
+	private Hermite() {}
+
+	public static double interpolate(double y0, double f0, double y1, double f1, double h, double theta) {
+		double t2 = theta * theta, u = 1 - theta, u2 = u * u;
+		return (1 + 2 * theta) * u2 * y0 + theta * u2 * h * f0 + t2 * (3 - 2 * theta) * y1 - t2 * u * h * f1;
+	}
+
+	public static void interpolate(Vector3d y0, Vector3d f0, Vector3d y1, Vector3d f1, double h, double theta, Vector3d output) {
+		output.x = interpolate(y0.x, f0.x, y1.x, f1.x, h, theta);
+		output.y = interpolate(y0.y, f0.y, y1.y, f1.y, h, theta);
+		output.z = interpolate(y0.z, f0.z, y1.z, f1.z, h, theta);
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import net.smoofyuniverse.lorenz.util.Updatable;
+
+public interface Integrator extends Updatable {
+
+	/**
+	 * Sets the maximum number of steps computed by the next calls to {@link #update()}.
+	 * Depending on the integrator, a step may emit no point or several.
+	 */
+	void setIterationsPerUpdate(int iterations);
+
+	/**
+	 * Continues the integration from the current state up to a new limit.
+	 *
+	 * @param limit    The total number of points, including those already computed.
+	 * @param listener The listener to notify of the next points.
+	 */
+	void extend(long limit, IncrementalListener listener);
+
+	Vector3d getCurrent();
+
+	double getTime();
+
+	long getSteps();
+
+	long getEvaluations();
+
+	enum Type {
+		RUNGE_KUTTA_4("RK4"), DORMAND_PRINCE("RK45");
+
+		public final String displayName;
+
+		Type(String displayName) {
+			this.displayName = displayName;
+		}
+
+		@Override
+		public String toString() {
+			return this.displayName;
+		}
+	}
+
+	static Integrator create(Type type, Vector3d v0, double h, double rtol, double atol, Function function, Series series, IncrementalListener listener, long limit, int iterationsPerUpdate) {
+		switch (type) {
+			case RUNGE_KUTTA_4:
+				return new RungeKutta4(v0, h, function, series, listener, limit, iterationsPerUpdate);
+			case DORMAND_PRINCE:
+				return new DormandPrince(v0, h, rtol, atol, function, series, listener, limit, iterationsPerUpdate);
+			default:
+				throw new IllegalArgumentException("type");
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+
+public final class LorenzFunction implements Function {
+	public final double sigma, rho, beta;
+
+	public LorenzFunction(double sigma, double rho, double beta) {
+		this.sigma = sigma;
+		this.rho = rho;
+		this.beta = beta;
+	}
+
+	@Override
+	public void apply(double x, double y, double z, Vector3d output) {
+		output.x = this.sigma * (y - x);
+		output.y = this.rho * x - y - x * z;
+		output.z = x * y - this.beta * z;
+	}
+
+	@Override
+	public void apply(double[] x, double[] y, double[] z, double[] dx, double[] dy, double[] dz, int length) {
+		double sigma = this.sigma, rho = this.rho, beta = this.beta;
+		for (int i = 0; i < length; i++) {
+			double xi = x[i], yi = y[i], zi = z[i];
+			dx[i] = sigma * (yi - xi);
+			dy[i] = rho * xi - yi - xi * zi;
+			dz[i] = xi * yi - beta * zi;
+		}
+	}
+}
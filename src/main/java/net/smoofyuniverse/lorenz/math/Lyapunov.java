@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import net.smoofyuniverse.lorenz.util.Updatable;
+
+/**
+ * Estimates the Lyapunov spectrum of the Lorenz system.
+ * The trajectory and three tangent vectors are integrated together with Runge-Kutta 4 using the analytic Jacobian,
+ * the tangent vectors being periodically orthonormalized with Gram-Schmidt.
+ */
+public final class Lyapunov implements Updatable {
+	public static final int DEFAULT_RENORMALIZATION = 10;
+
+	private final double sigma, rho, beta, h;
+	private final int renormalization;
+	private final Vector3d.Consumer consumer;
+	private final IncrementalListener listener;
+	private final long limit;
+	private final int iterationsPerUpdate;
+
+	private final double[] state = new double[12], k1 = new double[12], k2 = new double[12], k3 = new double[12], k4 = new double[12], tmp = new double[12];
+	private final double[] sums = new double[3];
+	private long steps, renormalizedSteps;
+	private int sinceRenormalization;
+
+	public Lyapunov(LorenzFunction function, Vector3d v0, double h, int renormalization) {
+		this(function, v0, h, renormalization, null, null, 0, 0);
+	}
+
+	public Lyapunov(LorenzFunction function, Vector3d v0, double h, int renormalization, Vector3d.Consumer consumer, IncrementalListener listener, long limit, int iterationsPerUpdate) {
+		if (renormalization <= 0)
+			throw new IllegalArgumentException("renormalization");
+
+		this.sigma = function.sigma;
+		this.rho = function.rho;
+		this.beta = function.beta;
+		this.h = h;
+		this.renormalization = renormalization;
+		this.consumer = consumer;
+		this.listener = listener;
+		this.limit = limit;
+		this.iterationsPerUpdate = iterationsPerUpdate;
+
+		this.state[0] = v0.x;
+		this.state[1] = v0.y;
+		this.state[2] = v0.z;
+		this.state[3] = 1;
+		this.state[7] = 1;
+		this.state[11] = 1;
+	}
+
+	@Override
+	public void update() {
+		int n = (int) Math.min(this.iterationsPerUpdate, this.limit - this.steps);
+		if (n <= 0 || (this.listener != null && this.listener.isCancelled()))
+			return;
+
+		apply(n);
+		if (this.listener != null)
+			this.listener.increment(n);
+		if (this.consumer != null)
+			this.consumer.accept(getExponent(0), getExponent(1), getExponent(2));
+	}
+
+	/**
+	 * Advances without accumulating the exponents.
+	 * The tangent vectors are orthonormalized at the end so that the growth measured afterward starts here.
+	 */
+	public void skip(int steps) {
+		for (int i = 0; i < steps; i++) {
+			step();
+			if (++this.sinceRenormalization == this.renormalization) {
+				this.sinceRenormalization = 0;
+				orthonormalize(null);
+			}
+		}
+		if (this.sinceRenormalization != 0) {
+			this.sinceRenormalization = 0;
+			orthonormalize(null);
+		}
+	}
+
+	public void apply(int steps) {
+		for (int i = 0; i < steps; i++) {
+			step();
+			this.steps++;
+			if (++this.sinceRenormalization == this.renormalization) {
+				this.sinceRenormalization = 0;
+				orthonormalize(this.sums);
+				this.renormalizedSteps = this.steps;
+			}
+		}
+	}
+
+	/**
+	 * @return The time covered by the accumulated exponents, up to the last renormalization.
+	 */
+	public double getTime() {
+		return this.renormalizedSteps * this.h;
+	}
+
+	public double getExponent(int i) {
+		double t = getTime();
+		return t == 0 ? 0 : this.sums[i] / t;
+	}
+
+	public Vector3d getCurrent() {
+		return new Vector3d(this.state[0], this.state[1], this.state[2]);
+	}
+
+	private void step() {
+		double[] s = this.state, k1 = this.k1, k2 = this.k2, k3 = this.k3, k4 = this.k4, t = this.tmp;
+		double h = this.h, h2 = h / 2D, h6 = h / 6D;
+
+		derivative(s, k1);
+		for (int i = 0; i < 12; i++)
+			t[i] = s[i] + h2 * k1[i];
+		derivative(t, k2);
+		for (int i = 0; i < 12; i++)
+			t[i] = s[i] + h2 * k2[i];
+		derivative(t, k3);
+		for (int i = 0; i < 12; i++)
+			t[i] = s[i] + h * k3[i];
+		derivative(t, k4);
+		for (int i = 0; i < 12; i++)
+			s[i] += h6 * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+	}
+
+	private void derivative(double[] s, double[] d) {
+		double x = s[0], y = s[1], z = s[2];
+		d[0] = this.sigma * (y - x);
+		d[1] = this.rho * x - y - x * z;
+		d[2] = x * y - this.beta * z;
+
+		double a = this.rho - z;
+		for (int i = 3; i < 12; i += 3) {
+			double u = s[i], v = s[i + 1], w = s[i + 2];
+			d[i] = this.sigma * (v - u);
+			d[i + 1] = a * u - v - x * w;
+			d[i + 2] = y * u + x * v - this.beta * w;
+		}
+	}
+
+	private void orthonormalize(double[] sums) {
+		double[] s = this.state;
+		for (int i = 0; i < 3; i++) {
+			int o = 3 + 3 * i;
+			for (int j = 0; j < i; j++) {
+				int p = 3 + 3 * j;
+				double d = s[o] * s[p] + s[o + 1] * s[p + 1] + s[o + 2] * s[p + 2];
+				s[o] -= d * s[p];
+				s[o + 1] -= d * s[p + 1];
+				s[o + 2] -= d * s[p + 2];
+			}
+
+			double n = Math.sqrt(s[o] * s[o] + s[o + 1] * s[o + 1] + s[o + 2] * s[o + 2]);
+			s[o] /= n;
+			s[o + 1] /= n;
+			s[o + 2] /= n;
+			if (sums != null)
+				sums[i] += Math.log(n);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Integrates the Lorenz system over a grid of (sigma, rho, beta) after a transient,
+ * either recording the successive maxima of z or estimating the Lyapunov spectrum.
+ */
+public final class ParameterSweep {
+	private final double[] sigma, rho, beta;
+
+	public double x0 = 1, y0 = 1, z0 = 1, h = 0.001;
+	public int transientSteps = 50000, steps = 100000, maxima = 64, renormalization = Lyapunov.DEFAULT_RENORMALIZATION;
+
+	public ParameterSweep(double[] sigma, double[] rho, double[] beta) {
+		if (sigma.length != rho.length || sigma.length != beta.length)
+			throw new IllegalArgumentException("length");
+		this.sigma = sigma;
+		this.rho = rho;
+		this.beta = beta;
+	}
+
+	public int size() {
+		return this.sigma.length;
+	}
+
+	public BifurcationData run(IncrementalListener listener) {
+		return run(ForkJoinPool.commonPool(), listener);
+	}
+
+	public BifurcationData run(ForkJoinPool pool, IncrementalListener listener) {
+		BifurcationData data = new BifurcationData(this.sigma.clone(), this.rho.clone(), this.beta.clone(), this.maxima);
+		pool.invoke(new Task(i -> compute(data, i, listener), listener, 0, data.size()));
+		return data;
+	}
+
+	public double[] lyapunov(IncrementalListener listener) {
+		return lyapunov(ForkJoinPool.commonPool(), listener);
+	}
+
+	public double[] lyapunov(ForkJoinPool pool, IncrementalListener listener) {
+		double[] exponents = new double[size() * 3];
+		pool.invoke(new Task(i -> {
+			Lyapunov l = new Lyapunov(new LorenzFunction(this.sigma[i], this.rho[i], this.beta[i]), new Vector3d(this.x0, this.y0, this.z0), this.h, this.renormalization);
+			l.skip(this.transientSteps);
+			l.apply(this.steps);
+			exponents[i * 3] = l.getExponent(0);
+			exponents[i * 3 + 1] = l.getExponent(1);
+			exponents[i * 3 + 2] = l.getExponent(2);
+		}, listener, 0, size()));
+		return exponents;
+	}
+
+	private void compute(BifurcationData data, int index, IncrementalListener listener) {
+		double sigma = data.sigma[index], rho = data.rho[index], beta = data.beta[index], h = this.h, h2 = h / 2D, h6 = h / 6D;
+		double x = this.x0, y = this.y0, z = this.z0, z1 = z, z2 = z;
+		int offset = index * data.maxima, count = 0;
+		int total = this.transientSteps + this.steps;
+
+		for (int i = 0; i < total && count < data.maxima; i++) {
+			if ((i & 0xFFFF) == 0 && listener.isCancelled())
+				break;
+
+			double k1x = sigma * (y - x), k1y = rho * x - y - x * z, k1z = x * y - beta * z;
+
+			double ax = x + h2 * k1x, ay = y + h2 * k1y, az = z + h2 * k1z;
+			double k2x = sigma * (ay - ax), k2y = rho * ax - ay - ax * az, k2z = ax * ay - beta * az;
+
+			ax = x + h2 * k2x;
+			ay = y + h2 * k2y;
+			az = z + h2 * k2z;
+			double k3x = sigma * (ay - ax), k3y = rho * ax - ay - ax * az, k3z = ax * ay - beta * az;
+
+			ax = x + h * k3x;
+			ay = y + h * k3y;
+			az = z + h * k3z;
+			double k4x = sigma * (ay - ax), k4y = rho * ax - ay - ax * az, k4z = ax * ay - beta * az;
+
+			x += h6 * (k1x + 2 * k2x + 2 * k3x + k4x);
+			y += h6 * (k1y + 2 * k2y + 2 * k3y + k4y);
+			z += h6 * (k1z + 2 * k2z + 2 * k3z + k4z);
+
+			if (i > this.transientSteps && z1 > z2 && z1 >= z) {
+				double d = z - 2 * z1 + z2;
+				data.values[offset + count++] = (float) (d < 0 ? z1 - (z - z2) * (z - z2) / (8 * d) : z1);
+			}
+
+			z2 = z1;
+			z1 = z;
+		}
+
+		data.counts[index] = count;
+	}
+
+	public static double[] range(double min, double max, int count) {
+		if (count <= 0)
+			throw new IllegalArgumentException("count");
+
+		double[] values = new double[count];
+		if (count == 1) {
+			values[0] = min;
+		} else {
+			double step = (max - min) / (count - 1);
+			for (int i = 0; i < count; i++)
+				values[i] = min + i * step;
+		}
+		return values;
+	}
+
+	public static ParameterSweep grid(double[] sigma, double[] rho, double[] beta) {
+		int size = sigma.length * rho.length * beta.length;
+		double[] s = new double[size], r = new double[size], b = new double[size];
+
+		int i = 0;
+		for (double vs : sigma) {
+			for (double vr : rho) {
+				for (double vb : beta) {
+					s[i] = vs;
+					r[i] = vr;
+					b[i] = vb;
+					i++;
+				}
+			}
+		}
+
+		return new ParameterSweep(s, r, b);
+	}
+
+	private static class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final IntConsumer job;
+		private final IncrementalListener listener;
+		private final int from, to;
+
+		public Task(IntConsumer job, IncrementalListener listener, int from, int to) {
+			this.job = job;
+			this.listener = listener;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > 1) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new Task(this.job, this.listener, this.from, mid), new Task(this.job, this.listener, mid, this.to));
+				return;
+			}
+
+			if (this.listener.isCancelled())
+				return;
+			this.job.accept(this.from);
+			this.listener.increment(1);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+/**
+ * Decimated copies of a series used to render large series at a bounded vertex count.
+ * Level k keeps one point out of 4^k and is maintained incrementally as points are appended.
+ * The trajectory advances by a tiny step per point so stride decimation stays visually equivalent
+ * as long as the stride covers less than a pixel on screen.
+ */
+public final class Pyramid {
+	public static final int LEVELS = 8, FACTOR_SHIFT = 2;
+
+	private final Series[] levels = new Series[LEVELS + 1];
+	private long count;
+	private float minX, minY, minZ, maxX, maxY, maxZ;
+	private float lastX, lastY, lastZ;
+	private double length;
+
+	Pyramid(Series base) {
+		this.levels[0] = base;
+		for (int i = 1; i <= LEVELS; i++)
+			this.levels[i] = new Series();
+	}
+
+	void add(float x, float y, float z) {
+		long i = this.count++;
+		if ((i & 3) == 0)
+			addDecimated(i, x, y, z);
+	}
+
+	void add(float[] points, int offset, int length) {
+		long i = this.count;
+		this.count += length;
+
+		int j = (int) (-i & 3);
+		for (; j < length; j += 4) {
+			int pos = (offset + j) * 3;
+			addDecimated(i + j, points[pos], points[pos + 1], points[pos + 2]);
+		}
+	}
+
+	private void addDecimated(long i, float x, float y, float z) {
+		if (i == 0) {
+			this.minX = this.maxX = x;
+			this.minY = this.maxY = y;
+			this.minZ = this.maxZ = z;
+			this.length = 0;
+		} else {
+			float dx = x - this.lastX, dy = y - this.lastY, dz = z - this.lastZ;
+			this.length += Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+			this.minX = Math.min(this.minX, x);
+			this.minY = Math.min(this.minY, y);
+			this.minZ = Math.min(this.minZ, z);
+			this.maxX = Math.max(this.maxX, x);
+			this.maxY = Math.max(this.maxY, y);
+			this.maxZ = Math.max(this.maxZ, z);
+		}
+		this.lastX = x;
+		this.lastY = y;
+		this.lastZ = z;
+
+		for (int k = 1; k <= LEVELS; k++) {
+			if ((i & ((1L << (k * FACTOR_SHIFT)) - 1)) != 0)
+				break;
+			this.levels[k].add(x, y, z);
+		}
+	}
+
+	/**
+	 * @param maxPoints The maximum number of points to draw.
+	 * @return The finest level with at most the given number of points, or the coarsest level.
+	 */
+	public Series select(long maxPoints) {
+		for (Series s : this.levels) {
+			if (s.getSnapshot().size <= maxPoints)
+				return s;
+		}
+		return this.levels[LEVELS];
+	}
+
+	public Series getLevel(int level) {
+		return this.levels[level];
+	}
+
+	public float getCenterX() {
+		return (this.minX + this.maxX) / 2;
+	}
+
+	public float getCenterY() {
+		return (this.minY + this.maxY) / 2;
+	}
+
+	public float getCenterZ() {
+		return (this.minZ + this.maxZ) / 2;
+	}
+
+	public float getRadius() {
+		float dx = this.maxX - this.minX, dy = this.maxY - this.minY, dz = this.maxZ - this.minZ;
+		return (float) Math.sqrt(dx * dx + dy * dy + dz * dz) / 2;
+	}
+
+	/**
+	 * @return The average distance between consecutive points of the series, estimated on the first level.
+	 */
+	public float getMeanStep() {
+		long n = this.levels[1].getSnapshot().size;
+		return n < 2 ? 0 : (float) (this.length / (n - 1) / (1 << FACTOR_SHIFT));
+	}
+
+	void commit() {
+		for (int i = 1; i <= LEVELS; i++)
+			this.levels[i].commit();
+	}
+
+	void compact() {
+		for (int i = 1; i <= LEVELS; i++)
+			this.levels[i].compact();
+	}
+
+	void clear() {
+		this.count = 0;
+		for (int i = 1; i <= LEVELS; i++)
+			this.levels[i].clear();
+	}
+
+	void release() {
+		this.count = 0;
+		for (int i = 1; i <= LEVELS; i++)
+			this.levels[i].release();
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -24,41 +24,167 @@ package net.smoofyuniverse.lorenz.math;
 
 import net.smoofyuniverse.common.task.IncrementalListener;
 import net.smoofyuniverse.lorenz.math.vector.Vector3d;
-import net.smoofyuniverse.lorenz.util.Updatable;
+import net.smoofyuniverse.lorenz.monitoring.SolverBatchEvent;
+
+public final class RungeKutta4 implements Integrator {
+	public static final int BLOCK_SIZE = 256;
 
-public final class RungeKutta4 implements Updatable {
 	private final Vector3d v0;
 	private final double h;
 	private final Function function;
 	private final Series series;
-	private final IncrementalListener listener;
-	private final int iterationsPerUpdate;
+	private IncrementalListener listener;
+	private long limit;
+	private int iterationsPerUpdate;
 
+	private final Vector3d derivative = new Vector3d();
+	private final float[] block = new float[BLOCK_SIZE * 3];
 	private Vector3d current;
+	private long steps;
+	private Timeline timeline;
 
-	public RungeKutta4(Vector3d v0, double h, Function function, Series series, IncrementalListener listener, int iterationsPerUpdate) {
+	public RungeKutta4(Vector3d v0, double h, Function function, Series series, IncrementalListener listener, long limit, int iterationsPerUpdate) {
 		this.v0 = v0.copy();
 		this.h = h;
 		this.function = function;
 		this.series = series;
 		this.listener = listener;
+		this.limit = limit;
 		this.iterationsPerUpdate = iterationsPerUpdate;
 
-		this.current = this.v0;
+		this.current = this.v0.copy();
 	}
 
 	@Override
 	public void update() {
-		if (!this.listener.isCancelled())
-			this.current = apply(this.current, this.h, this.function, this.series, this.listener, this.iterationsPerUpdate);
+		int n = (int) Math.min(this.iterationsPerUpdate, this.limit - this.steps);
+		if (n > 0 && (this.listener == null || !this.listener.isCancelled())) {
+			SolverBatchEvent event = new SolverBatchEvent();
+			event.begin();
+			int steps = this.timeline == null ? apply0(n) : applyCheckpointed(n);
+			event.end();
+			if (event.shouldCommit()) {
+				event.integrator = Type.RUNGE_KUTTA_4.displayName;
+				event.steps = steps;
+				event.commit();
+			}
+		}
+		if (this.series != null)
+			this.series.commit();
+	}
+
+	private int apply0(int n) {
+		DenseOutput dense = this.series == null ? null : this.series.getDenseOutput();
+		if (dense != null)
+			return applySampled(dense, n);
+
+		int steps = apply0(this.current, this.h, this.function, this.series, this.listener, n, this.block);
+		this.steps += steps;
+		return steps;
+	}
+
+	/**
+	 * Only adds the state at the end of each stride, with its derivative.
+	 */
+	private int applySampled(DenseOutput dense, int n) {
+		int stride = dense.getStride(), steps = 0;
+		while (steps < n) {
+			int m = (int) Math.min(n - steps, stride - this.steps % stride);
+			int done = apply0(this.current, this.h, this.function, null, this.listener, m, null);
+			this.steps += done;
+			steps += done;
+			if (done < m)
+				break;
+			if (this.steps % stride == 0) {
+				this.function.apply(this.current, this.derivative);
+				this.series.add(this.current, this.derivative);
+			}
+		}
+		return steps;
+	}
+
+	/**
+	 * Stops at every checkpoint of the timeline.
+	 */
+	private int applyCheckpointed(int n) {
+		int interval = this.timeline.getInterval(), steps = 0;
+		while (steps < n) {
+			int m = (int) Math.min(n - steps, interval - this.steps % interval);
+			int done = apply0(m);
+			steps += done;
+			this.timeline.advance(this.steps, this.current);
+			if (done < m)
+				break;
+		}
+		return steps;
+	}
+
+	/**
+	 * Records checkpoints while integrating, must be set before the first update.
+	 */
+	public void setTimeline(Timeline timeline) {
+		if (this.steps != 0)
+			throw new IllegalStateException("Started");
+		this.timeline = timeline;
+	}
+
+	public Timeline getTimeline() {
+		return this.timeline;
+	}
+
+	@Override
+	public void setIterationsPerUpdate(int iterations) {
+		if (iterations <= 0)
+			throw new IllegalArgumentException("iterations");
+		this.iterationsPerUpdate = iterations;
+	}
+
+	@Override
+	public void extend(long limit, IncrementalListener listener) {
+		if (limit < this.steps)
+			throw new IllegalArgumentException("limit");
+		this.limit = limit;
+		this.listener = listener;
+	}
+
+	@Override
+	public Vector3d getCurrent() {
+		return this.current.copy();
+	}
+
+	@Override
+	public double getTime() {
+		return this.steps * this.h;
+	}
+
+	@Override
+	public long getSteps() {
+		return this.steps;
+	}
+
+	@Override
+	public long getEvaluations() {
+		return this.steps * 4;
 	}
 
 	public static Vector3d apply(Vector3d v0, double h, Function function, Series series, IncrementalListener listener, int maxIterations) {
+		Vector3d v = v0.copy();
+		apply0(v, h, function, series, listener, maxIterations, series == null ? null : new float[Math.min(maxIterations, BLOCK_SIZE) * 3]);
+		return v;
+	}
+
+	/**
+	 * @param block The buffer holding the points of a block until they are added to the series, at least BLOCK_SIZE points or maxIterations.
+	 */
+	private static int apply0(Vector3d v, double h, Function function, Series series, IncrementalListener listener, int maxIterations, float[] block) {
+		if (function instanceof LorenzFunction)
+			return applyLorenz(v, h, (LorenzFunction) function, series, listener, maxIterations, block);
+
 		double h2 = h / 2D, h6 = h / 6D;
-		Vector3d v = v0.copy(), k1 = new Vector3d(), k2 = new Vector3d(), k3 = new Vector3d(), k4 = new Vector3d();
+		Vector3d k1 = new Vector3d(), k2 = new Vector3d(), k3 = new Vector3d(), k4 = new Vector3d();
 
 		int i = 0;
-		while (!listener.isCancelled() && i < maxIterations) {
+		while (i < maxIterations && (listener == null || !listener.isCancelled())) {
 			function.apply(v, k1);
 			function.apply(v.x + h2 * k1.x, v.y + h2 * k1.y, v.z + h2 * k1.z, k2);
 			function.apply(v.x + h2 * k2.x, v.y + h2 * k2.y, v.z + h2 * k2.z, k3);
@@ -68,11 +194,62 @@ public final class RungeKutta4 implements Updatable {
 			v.y += h6 * (k1.y + 2 * k2.y + 2 * k3.y + k4.y);
 			v.z += h6 * (k1.z + 2 * k2.z + 2 * k3.z + k4.z);
 
-			listener.increment(1);
-			series.add(v);
+			if (listener != null)
+				listener.increment(1);
+			if (series != null)
+				series.add(v);
 			i++;
 		}
 
-		return v;
+		return i;
+	}
+
+	private static int applyLorenz(Vector3d v, double h, LorenzFunction function, Series series, IncrementalListener listener, int maxIterations, float[] block) {
+		double sigma = function.sigma, rho = function.rho, beta = function.beta, h2 = h / 2D, h6 = h / 6D;
+		double x = v.x, y = v.y, z = v.z;
+		boolean record = series != null;
+
+		int i = 0;
+		while (i < maxIterations && (listener == null || !listener.isCancelled())) {
+			int n = Math.min(maxIterations - i, BLOCK_SIZE);
+
+			for (int j = 0, pos = 0; j < n; j++) {
+				double k1x = sigma * (y - x), k1y = rho * x - y - x * z, k1z = x * y - beta * z;
+
+				double ax = x + h2 * k1x, ay = y + h2 * k1y, az = z + h2 * k1z;
+				double k2x = sigma * (ay - ax), k2y = rho * ax - ay - ax * az, k2z = ax * ay - beta * az;
+
+				ax = x + h2 * k2x;
+				ay = y + h2 * k2y;
+				az = z + h2 * k2z;
+				double k3x = sigma * (ay - ax), k3y = rho * ax - ay - ax * az, k3z = ax * ay - beta * az;
+
+				ax = x + h * k3x;
+				ay = y + h * k3y;
+				az = z + h * k3z;
+				double k4x = sigma * (ay - ax), k4y = rho * ax - ay - ax * az, k4z = ax * ay - beta * az;
+
+				x += h6 * (k1x + 2 * k2x + 2 * k3x + k4x);
+				y += h6 * (k1y + 2 * k2y + 2 * k3y + k4y);
+				z += h6 * (k1z + 2 * k2z + 2 * k3z + k4z);
+
+				if (record) {
+					block[pos++] = (float) x;
+					block[pos++] = (float) y;
+					block[pos++] = (float) z;
+				}
+			}
+
+			if (listener != null)
+				listener.increment(n);
+			if (record)
+				series.add(block, 0, n);
+			i += n;
+		}
+
+		v.x = x;
+		v.y = y;
+		v.z = z;
+		return i;
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -22,75 +22,674 @@
 
 package net.smoofyuniverse.lorenz.math;
 
-import com.jogamp.common.nio.Buffers;
-import javafx.scene.paint.Color;
+import net.smoofyuniverse.lorenz.math.storage.DirectStorage;
+import net.smoofyuniverse.lorenz.math.storage.QuantizedPoints;
+import net.smoofyuniverse.lorenz.math.storage.RingStorage;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
 import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import net.smoofyuniverse.lorenz.monitoring.StorageGrowthEvent;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Points are appended by a single writer and published to other threads in batches by {@link #commit()}.
+ * Other threads only read the last published {@link Snapshot}, obtained with {@link #acquireSnapshot()}.
+ * Discarding the points starts a new generation: the writer never writes again into memory that an acquired snapshot can see,
+ * and the memory is freed once the last snapshot of it is released.
+ * <p>
+ * In streaming mode, the series keeps the last points in a ring of fixed capacity and overwrites the oldest ones.
+ * <p>
+ * With a {@link DenseOutput}, the series only keeps sparse samples and their derivatives.
+ * <p>
+ * A complete series can be compacted to {@link QuantizedPoints}, it is then read-only until cleared.
+ */
 public final class Series {
-	public static final Color DEFAULT_COLOR = Color.color(1, 1, 1, 0.8);
+	private static final int FILL_BLOCK = 4096;
 
 	public boolean connect = true;
-	private Color color = DEFAULT_COLOR;
+	public ColorMode colorMode = ColorMode.UNIFORM;
+	private float red = 1, green = 1, blue = 1, opacity = 0.8f;
+
+	private Storage storage = new DirectStorage();
+	private int shift = this.storage.shift();
+	private long mask = (1L << this.shift) - 1;
+	private long size = 0;
+	private int ring;
+	private long total = 0;
+	private Pyramid pyramid;
+	private DenseOutput denseOutput;
+	private QuantizedPoints quantized;
+	private int generation;
+	private Generation owner = new Generation(this.storage, null);
+	private volatile Snapshot snapshot = new Snapshot(this.owner, new FloatBuffer[0], this.shift, 0, 0, 0, 0);
+	private volatile long windowStart, windowEnd = Long.MAX_VALUE;
+
+	public float getRed() {
+		return this.red;
+	}
+
+	public float getGreen() {
+		return this.green;
+	}
+
+	public float getBlue() {
+		return this.blue;
+	}
+
+	public float getOpacity() {
+		return this.opacity;
+	}
+
+	public void setColor(float red, float green, float blue, float opacity) {
+		this.red = red;
+		this.green = green;
+		this.blue = blue;
+		this.opacity = opacity;
+	}
+
+	public Storage getStorage() {
+		return this.storage;
+	}
+
+	public void setStorage(Storage.Type type) {
+		if (type == null)
+			throw new IllegalArgumentException("type");
+		if (this.ring != 0 || type != this.storage.type())
+			setStorage(type.create());
+	}
+
+	public void setStorage(Storage storage) {
+		if (storage == null)
+			throw new IllegalArgumentException("storage");
+		if (storage == this.storage)
+			return;
+
+		this.ring = storage instanceof RingStorage ? ((RingStorage) storage).ring() : 0;
+		this.size = 0;
+		this.total = 0;
+		if (this.pyramid != null)
+			this.pyramid.release();
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().clear();
+		swap(storage, null).release();
+	}
+
+	/**
+	 * Switches to streaming mode, keeping at most the given number of points.
+	 */
+	public void setRing(int ring) {
+		if (ring != this.ring)
+			setStorage(new RingStorage(ring));
+	}
+
+	/**
+	 * @return The capacity in streaming mode, or 0 when the series is unbounded.
+	 */
+	public int getRing() {
+		return this.ring;
+	}
 
-	private FloatBuffer buffer;
-	private int size = 0;
+	/**
+	 * @return The index in the storage of the oldest point.
+	 */
+	public int getHead() {
+		return this.total <= this.ring ? 0 : (int) (this.total % this.ring);
+	}
 
-	public Color getColor() {
-		return this.color;
+	/**
+	 * @return The number of points added since the series was cleared, including the overwritten ones.
+	 */
+	public long getTotal() {
+		return this.ring == 0 ? this.size : this.total;
 	}
 
-	public void setColor(Color color) {
-		this.color = color == null ? Color.WHITE : color;
+	/**
+	 * Enables or disables the decimated levels used for rendering.
+	 * Levels are not maintained in streaming mode.
+	 */
+	public void setLevelOfDetail(boolean value) {
+		if (value == (this.pyramid != null))
+			return;
+
+		if (value) {
+			Pyramid p = new Pyramid(this);
+			if (this.ring == 0)
+				fill(p);
+			this.pyramid = p;
+		} else {
+			// Levels being read are freed once their snapshots are released
+			this.pyramid.release();
+			this.pyramid = null;
+		}
+	}
+
+	private void fill(Pyramid p) {
+		if (this.quantized != null) {
+			for (long i = 0; i < this.size; i++)
+				p.add(get(i, 0), get(i, 1), get(i, 2));
+			return;
+		}
+
+		// Bulk copies, one block at a time
+		float[] block = new float[FILL_BLOCK * 3];
+		long i = 0;
+		while (i < this.size) {
+			FloatBuffer segment = this.storage.getSegment((int) (i >>> this.shift));
+			int pos = (int) (i & this.mask);
+			int n = (int) Math.min(Math.min(this.size - i, FILL_BLOCK), (this.mask + 1) - pos);
+			segment.get(pos * 3, block, 0, n * 3);
+			p.add(block, 0, n);
+			i += n;
+		}
+	}
+
+	/**
+	 * @return The decimated levels, or null if disabled or in streaming mode.
+	 */
+	public Pyramid getPyramid() {
+		return this.ring == 0 ? this.pyramid : null;
+	}
+
+	/**
+	 * Replaces the points by a quantized copy, halving the memory used.
+	 * The pyramid levels are compacted too.
+	 * The series then only supports reading and rendering until it is cleared.
+	 */
+	public void compact() {
+		if (this.ring != 0)
+			throw new IllegalStateException("Streaming");
+		if (this.quantized != null)
+			return;
+
+		QuantizedPoints quantized = QuantizedPoints.encode(this.storage.segments(), this.shift, this.size);
+		swap(this.storage.type().create(), quantized).release();
+
+		if (this.pyramid != null)
+			this.pyramid.compact();
+	}
+
+	/**
+	 * @return The quantized points, or null if the series is not compacted.
+	 */
+	public QuantizedPoints getQuantized() {
+		return this.quantized;
+	}
+
+	/**
+	 * Stores derivatives alongside the points, which must then be added with {@link #add(Vector3d, Vector3d)}.
+	 * Existing points are discarded.
+	 *
+	 * @param denseOutput The dense output, or null to store points only.
+	 */
+	public void setDenseOutput(DenseOutput denseOutput) {
+		if (denseOutput == this.denseOutput)
+			return;
+
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().release();
+		this.denseOutput = denseOutput;
+		clear();
+	}
+
+	/**
+	 * @return The dense output, or null if this series stores every point.
+	 */
+	public DenseOutput getDenseOutput() {
+		return this.denseOutput;
+	}
+
+	/**
+	 * Restricts the rendering to the points between the given indices.
+	 * Ignored in streaming mode.
+	 *
+	 * @param start The index of the first point.
+	 * @param end   The index after the last point.
+	 */
+	public void setWindow(long start, long end) {
+		if (start < 0 || end < start)
+			throw new IllegalArgumentException("window");
+		this.windowStart = start;
+		this.windowEnd = end;
+	}
+
+	public void clearWindow() {
+		setWindow(0, Long.MAX_VALUE);
+	}
+
+	public long getWindowStart() {
+		return this.windowStart;
+	}
+
+	public long getWindowEnd() {
+		return this.windowEnd;
 	}
 
 	public void add(Vector3d v) {
 		add((float) v.x, (float) v.y, (float) v.z);
 	}
 
+	/**
+	 * Adds a sample and its derivative, see {@link #setDenseOutput(DenseOutput)}.
+	 */
+	public void add(Vector3d state, Vector3d derivative) {
+		this.denseOutput.getDerivatives().add(derivative);
+		add(state);
+	}
+
 	public void add(float x, float y, float z) {
+		if (this.ring != 0) {
+			addRing(x, y, z);
+			return;
+		}
+
 		ensureCapacity(this.size + 1, false);
 
-		int pos = this.size * 3;
-		this.buffer.put(pos, x);
-		this.buffer.put(pos + 1, y);
-		this.buffer.put(pos + 2, z);
+		FloatBuffer segment = this.storage.getSegment((int) (this.size >>> this.shift));
+		int pos = (int) (this.size & this.mask) * 3;
+		segment.put(pos, x);
+		segment.put(pos + 1, y);
+		segment.put(pos + 2, z);
 
 		this.size++;
+
+		if (this.pyramid != null)
+			this.pyramid.add(x, y, z);
 	}
 
-	public void ensureCapacity(int capacity, boolean exact) {
-		if (this.buffer == null) {
-			if (capacity < 128)
-				capacity = 128;
-			this.buffer = Buffers.newDirectFloatBuffer(capacity * 3);
-		} else {
-			int prevCapacity = this.buffer.capacity() / 3;
-			if (capacity <= prevCapacity)
-				return;
+	public void add(float[] points, int offset, int length) {
+		if (this.ring != 0) {
+			addRing(points, offset, length);
+			return;
+		}
 
-			if (!exact) {
-				if (capacity < prevCapacity * 2)
-					capacity = prevCapacity * 2;
-			}
+		ensureCapacity(this.size + length, false);
+
+		if (this.pyramid != null)
+			this.pyramid.add(points, offset, length);
+
+		while (length != 0) {
+			FloatBuffer segment = this.storage.getSegment((int) (this.size >>> this.shift));
+			int pos = (int) (this.size & this.mask);
+			int n = (int) Math.min(length, (this.mask + 1) - pos);
+
+			segment.put(pos * 3, points, offset * 3, n * 3);
+			this.size += n;
+			offset += n;
+			length -= n;
+		}
+	}
+
+	private void addRing(float x, float y, float z) {
+		this.storage.ensureCapacity(this.ring + 1, true);
+		FloatBuffer buffer = this.storage.getSegment(0);
+
+		int pos = (int) (this.total % this.ring);
+		buffer.put(pos * 3, x);
+		buffer.put(pos * 3 + 1, y);
+		buffer.put(pos * 3 + 2, z);
+		if (pos == 0) {
+			buffer.put(this.ring * 3, x);
+			buffer.put(this.ring * 3 + 1, y);
+			buffer.put(this.ring * 3 + 2, z);
+		}
+
+		this.total++;
+		this.size = Math.min(this.total, this.ring);
+	}
+
+	private void addRing(float[] points, int offset, int length) {
+		this.storage.ensureCapacity(this.ring + 1, true);
+		FloatBuffer buffer = this.storage.getSegment(0);
+
+		while (length != 0) {
+			int pos = (int) (this.total % this.ring);
+			int n = Math.min(length, this.ring - pos);
+
+			buffer.put(pos * 3, points, offset * 3, n * 3);
+			if (pos == 0)
+				buffer.put(this.ring * 3, points, offset * 3, 3);
 
-			FloatBuffer buf = Buffers.newDirectFloatBuffer(capacity * 3);
-			buf.put(this.buffer);
-			buf.rewind();
-			this.buffer = buf;
+			this.total += n;
+			offset += n;
+			length -= n;
 		}
+		this.size = Math.min(this.total, this.ring);
 	}
 
+	public void ensureCapacity(long capacity, boolean exact) {
+		if (this.quantized != null)
+			throw new IllegalStateException("Compacted");
+		if (this.ring != 0)
+			capacity = Math.min(capacity, this.ring + 1);
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().ensureCapacity(capacity, exact);
+
+		long previous = this.storage.capacity();
+		if (capacity <= previous)
+			return;
+
+		StorageGrowthEvent event = new StorageGrowthEvent();
+		event.begin();
+		this.storage.ensureCapacity(capacity, exact);
+		event.end();
+		if (event.shouldCommit()) {
+			event.storage = this.storage.getClass().getSimpleName();
+			event.previousCapacity = previous;
+			event.capacity = this.storage.capacity();
+			event.bytesAllocated = (event.capacity - previous) * 12;
+			event.commit();
+		}
+	}
+
+	public float get(long index, int component) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException(Long.toString(index));
+		if (this.quantized != null)
+			return this.quantized.get(index, component);
+		if (this.ring != 0)
+			return this.storage.getSegment(0).get((int) ((getHead() + index) % this.ring) * 3 + component);
+		return this.storage.getSegment((int) (index >>> this.shift)).get((int) (index & this.mask) * 3 + component);
+	}
+
+	/**
+	 * Discards the points.
+	 * The storage and its capacity are kept if no snapshot of them is in use, otherwise a new storage is started.
+	 */
 	public void clear() {
 		this.size = 0;
+		this.total = 0;
+		if (this.pyramid != null)
+			this.pyramid.clear();
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().clear();
+
+		Generation previous = this.owner;
+		if (previous.tryClose()) {
+			if (previous.quantized != null)
+				previous.quantized.release();
+			swap(this.storage, null);
+		} else {
+			swap(newStorage(), null).release();
+		}
+	}
+
+	/**
+	 * Discards the points and frees the memory, at once if no snapshot of it is in use.
+	 */
+	public void release() {
+		this.size = 0;
+		this.total = 0;
+		if (this.pyramid != null)
+			this.pyramid.release();
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().release();
+		swap(newStorage(), null).release();
+	}
+
+	private Storage newStorage() {
+		return this.ring != 0 ? new RingStorage(this.ring) : this.storage.type().create();
+	}
+
+	/**
+	 * Starts a new generation and publishes it.
+	 *
+	 * @return The previous generation, to be released or closed by the caller.
+	 */
+	private Generation swap(Storage storage, QuantizedPoints quantized) {
+		Generation previous = this.owner;
+		this.storage = storage;
+		this.shift = storage.shift();
+		this.mask = (1L << this.shift) - 1;
+		this.quantized = quantized;
+		this.owner = new Generation(storage, quantized);
+		this.generation++;
+		// Readers that fail to acquire the previous generation then find this one
+		commit();
+		return previous;
+	}
+
+	/**
+	 * Hands the storage and its points over to the caller, the series continues empty with a new storage of the same type.
+	 *
+	 * @return The previous storage, holding {@link #size()} points.
+	 */
+	public Storage detach() {
+		if (this.ring != 0)
+			throw new IllegalStateException("Streaming");
+		if (this.denseOutput != null)
+			throw new IllegalStateException("Dense output");
+		if (this.quantized != null)
+			throw new IllegalStateException("Compacted");
+
+		Storage storage = this.storage;
+		this.size = 0;
+		if (this.pyramid != null)
+			this.pyramid.clear();
+		swap(storage.type().create(), null).close();
+		return storage;
+	}
+
+	/**
+	 * Replaces the storage and the points of this series.
+	 *
+	 * @param storage The storage, this series takes ownership of it.
+	 * @param size    The number of points already written in the storage.
+	 */
+	public void attach(Storage storage, long size) {
+		if (storage == null || storage == this.storage || storage instanceof RingStorage)
+			throw new IllegalArgumentException("storage");
+		if (size < 0 || size > storage.capacity())
+			throw new IllegalArgumentException("size");
+		if (this.denseOutput != null)
+			throw new IllegalStateException("Dense output");
+
+		this.ring = 0;
+		this.size = size;
+		this.total = 0;
+		if (this.pyramid != null)
+			this.pyramid.release();
+		Generation previous = swap(storage, null);
+		if (this.pyramid != null) {
+			fill(this.pyramid);
+			commit();
+		}
+		previous.release();
+	}
+
+	/**
+	 * Publishes the points appended since the previous commit.
+	 * Must be called by the writer.
+	 */
+	public void commit() {
+		// Derivatives are published first so that every published sample has one
+		if (this.denseOutput != null)
+			this.denseOutput.getDerivatives().commit();
+		Snapshot prev = this.snapshot;
+		if (prev.size != this.size || prev.total != getTotal() || prev.generation != this.generation || prev.segments != this.storage.segments())
+			this.snapshot = new Snapshot(this.owner, this.storage.segments(), this.shift, this.size, getTotal(), this.generation, this.ring);
+		if (this.pyramid != null)
+			this.pyramid.commit();
+	}
+
+	/**
+	 * The points of the returned snapshot may be freed at any time by the writer,
+	 * only its size and counters can be read from other threads, see {@link #acquireSnapshot()}.
+	 *
+	 * @return The last published state.
+	 */
+	public Snapshot getSnapshot() {
+		return this.snapshot;
 	}
 
-	public int size() {
+	/**
+	 * Does not block: when the writer discards the points concurrently, the new snapshot is returned instead.
+	 *
+	 * @return The last published state, whose points stay valid until {@link Snapshot#release()} is called.
+	 */
+	public Snapshot acquireSnapshot() {
+		while (true) {
+			Snapshot s = this.snapshot;
+			if (s.owner.acquire())
+				return s;
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * @return A counter incremented whenever existing points are discarded.
+	 */
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	public long size() {
 		return this.size;
 	}
 
-	public FloatBuffer getBuffer() {
-		return this.buffer;
+	/**
+	 * In streaming mode, the single segment is in storage order and starts at {@link #getHead()} once wrapped.
+	 */
+	public int segmentCount() {
+		return (int) ((this.size + this.mask) >>> this.shift);
+	}
+
+	public FloatBuffer getSegment(int index) {
+		return this.storage.getSegment(index);
+	}
+
+	public ByteBuffer getSegmentBytes(int index) {
+		return this.storage.getBytes(index);
+	}
+
+	public int segmentLength(int index) {
+		return (int) Math.min(this.size - ((long) index << this.shift), this.mask + 1);
+	}
+
+	/**
+	 * The memory of the points of one generation.
+	 * The writer holds one reference until it discards the points, and each acquired snapshot holds another.
+	 */
+	private static final class Generation {
+		final Storage storage;
+		final QuantizedPoints quantized;
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		Generation(Storage storage, QuantizedPoints quantized) {
+			this.storage = storage;
+			this.quantized = quantized;
+		}
+
+		/**
+		 * @return Whether a reference was taken, false if the writer already discarded this generation.
+		 */
+		boolean acquire() {
+			while (true) {
+				int n = this.references.get();
+				if (n == 0)
+					return false;
+				if (this.references.compareAndSet(n, n + 1))
+					return true;
+			}
+		}
+
+		void release() {
+			if (this.references.decrementAndGet() == 0) {
+				this.storage.release();
+				if (this.quantized != null)
+					this.quantized.release();
+			}
+		}
+
+		/**
+		 * Takes the memory back from the writer if no snapshot of it is in use.
+		 * The memory is then owned by the caller and is not freed.
+		 *
+		 * @return Whether the memory was taken back.
+		 */
+		boolean tryClose() {
+			return this.references.compareAndSet(1, 0);
+		}
+
+		/**
+		 * Waits until no snapshot of this generation is in use and takes the memory back, see {@link #tryClose()}.
+		 */
+		void close() {
+			while (!tryClose())
+				LockSupport.parkNanos(100_000L);
+		}
+	}
+
+	/**
+	 * Immutable view of a series at a commit.
+	 * Points below the committed size are never modified, except in streaming mode where the writer overwrites the oldest ones.
+	 * A compacted series has no segments, its points are read from {@link #quantized}.
+	 */
+	public static final class Snapshot {
+		private final Generation owner;
+		public final FloatBuffer[] segments;
+		public final QuantizedPoints quantized;
+		public final int shift, generation, ring;
+		public final long size, total;
+
+		Snapshot(Generation owner, FloatBuffer[] segments, int shift, long size, long total, int generation, int ring) {
+			this.owner = owner;
+			this.segments = segments;
+			this.quantized = owner.quantized;
+			this.shift = shift;
+			this.size = size;
+			this.total = total;
+			this.generation = generation;
+			this.ring = ring;
+		}
+
+		public int segmentCount() {
+			return (int) ((this.size + (1L << this.shift) - 1) >>> this.shift);
+		}
+
+		public int segmentLength(int index) {
+			return (int) Math.min(this.size - ((long) index << this.shift), 1L << this.shift);
+		}
+
+		/**
+		 * @return The index in the storage of the oldest point.
+		 */
+		public int getHead() {
+			return this.total <= this.ring ? 0 : (int) (this.total % this.ring);
+		}
+
+		/**
+		 * Releases a snapshot returned by {@link Series#acquireSnapshot()}, its points must not be read afterwards.
+		 */
+		public void release() {
+			this.owner.release();
+		}
+
+		public float get(long index, int component) {
+			if (index < 0 || index >= this.size)
+				throw new IndexOutOfBoundsException(Long.toString(index));
+			if (this.quantized != null)
+				return this.quantized.get(index, component);
+			if (this.ring != 0)
+				return this.segments[0].get((int) ((getHead() + index) % this.ring) * 3 + component);
+			return this.segments[(int) (index >>> this.shift)].get((int) (index & ((1L << this.shift) - 1)) * 3 + component);
+		}
+	}
+
+	public enum ColorMode {
+		UNIFORM("Uniforme"), TIME("Temps"), SPEED("Vitesse");
+
+		public final String displayName;
+
+		ColorMode(String displayName) {
+			this.displayName = displayName;
+		}
+
+		@Override
+		public String toString() {
+			return this.displayName;
+		}
 	}
 }
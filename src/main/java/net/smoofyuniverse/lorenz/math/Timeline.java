@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+
+import java.util.Arrays;
+
+/**
+ * Sparse checkpoints of a fixed-step trajectory, recorded by {@link RungeKutta4}.
+ * Since steps are deterministic, the state at any step is restored from the previous checkpoint
+ * by integrating at most one interval again, so the points themselves do not need to be stored.
+ */
+public final class Timeline {
+	public static final int DEFAULT_INTERVAL = 4096;
+
+	private final Function function;
+	private final double h;
+	private final int interval;
+	/**
+	 * Written by the integrator only. Checkpoints up to the published steps are visible to readers that read steps first,
+	 * the array is only replaced once filled.
+	 */
+	private volatile double[] states = new double[3 * 64];
+	private int count;
+	private volatile long steps;
+
+	public Timeline(Vector3d v0, double h, Function function) {
+		this(v0, h, function, DEFAULT_INTERVAL);
+	}
+
+	public Timeline(Vector3d v0, double h, Function function, int interval) {
+		if (function == null)
+			throw new IllegalArgumentException("function");
+		if (interval <= 0)
+			throw new IllegalArgumentException("interval");
+
+		this.function = function;
+		this.h = h;
+		this.interval = interval;
+		record(v0);
+	}
+
+	public double getStep() {
+		return this.h;
+	}
+
+	public int getInterval() {
+		return this.interval;
+	}
+
+	/**
+	 * @return The number of steps computed so far.
+	 */
+	public long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * @return The number of checkpoints up to the steps computed so far.
+	 */
+	public int getCheckpointCount() {
+		return (int) (this.steps / this.interval) + 1;
+	}
+
+	/**
+	 * Called by the integrator after each batch.
+	 *
+	 * @param steps The number of steps computed so far.
+	 * @param state The state after these steps.
+	 */
+	void advance(long steps, Vector3d state) {
+		if (steps % this.interval == 0 && steps / this.interval == this.count)
+			record(state);
+		this.steps = steps;
+	}
+
+	private void record(Vector3d state) {
+		double[] states = this.states;
+		int pos = this.count * 3;
+		if (pos + 3 > states.length)
+			states = Arrays.copyOf(states, states.length * 2);
+		states[pos] = state.x;
+		states[pos + 1] = state.y;
+		states[pos + 2] = state.z;
+		this.states = states;
+		this.count++;
+	}
+
+	/**
+	 * @return The state after the given number of steps, integrating from the nearest checkpoint before it.
+	 */
+	public Vector3d seek(long step) {
+		if (step < 0)
+			throw new IllegalArgumentException("step");
+
+		// Reading steps first makes the checkpoints recorded before it visible
+		long computed = this.steps;
+		double[] states = this.states;
+		int c = (int) (Math.min(step, computed) / this.interval);
+		int pos = c * 3;
+		Vector3d v = new Vector3d(states[pos], states[pos + 1], states[pos + 2]);
+		return replay(v, step - (long) c * this.interval, null);
+	}
+
+	/**
+	 * Integrates from a state of this trajectory.
+	 *
+	 * @param series The series to add the next states to, or null.
+	 * @return The state after the given number of steps.
+	 */
+	public Vector3d replay(Vector3d state, long steps, Series series) {
+		Vector3d v = state;
+		while (steps > 0) {
+			int n = (int) Math.min(steps, Integer.MAX_VALUE);
+			v = RungeKutta4.apply(v, this.h, this.function, series, null, n);
+			steps -= n;
+		}
+		return v;
+	}
+}
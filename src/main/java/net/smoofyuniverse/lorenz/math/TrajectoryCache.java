@@ -0,0 +1,418 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Keeps recently computed trajectories so that they can be reused instead of being integrated again.
+ * Storages are kept up to a memory budget, direct ones are moved to mapped storages so that cached trajectories
+ * leave the direct memory to live series. Beyond the budget, the least recently used ones are written to
+ * the disk store if any, itself limited by a budget, or released.
+ * Copies and disk accesses may be slow, {@link #putLater} and {@link #takeLater} run them on the thread of the cache.
+ */
+public final class TrajectoryCache {
+	private static final Logger logger = ApplicationLogger.get(TrajectoryCache.class);
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Trajectory cache");
+		t.setDaemon(true);
+		return t;
+	});
+	private final Map<Key, Entry> memory = new LinkedHashMap<>(16, 0.75f, true), disk = new LinkedHashMap<>(16, 0.75f, true);
+	private final long memoryBudget, diskBudget;
+	private final Path directory;
+	private volatile boolean closed;
+	private long memoryBytes, diskBytes;
+	private int files;
+
+	/**
+	 * @param memoryBudget The maximum size of the storages kept, in bytes.
+	 * @param directory    The directory of the disk store, or null to release evicted trajectories.
+	 * @param diskBudget   The maximum size of the disk store, in bytes.
+	 */
+	public TrajectoryCache(long memoryBudget, Path directory, long diskBudget) {
+		if (memoryBudget < 0)
+			throw new IllegalArgumentException("memoryBudget");
+		if (diskBudget < 0)
+			throw new IllegalArgumentException("diskBudget");
+		this.memoryBudget = memoryBudget;
+		this.directory = directory;
+		this.diskBudget = diskBudget;
+	}
+
+	/**
+	 * Adds a trajectory to the cache.
+	 *
+	 * @param storage The storage, the cache takes ownership of it.
+	 * @param size    The number of points in the storage.
+	 */
+	public synchronized void put(Key key, Storage storage, long size) {
+		if (key == null)
+			throw new IllegalArgumentException("key");
+		if (storage == null)
+			throw new IllegalArgumentException("storage");
+
+		if (this.closed) {
+			storage.release();
+			return;
+		}
+
+		remove(key);
+		if (storage.type() == Storage.Type.DIRECT) {
+			storage = map(storage, size);
+			if (storage == null)
+				return;
+		}
+		Entry e = new Entry(storage, null, size);
+		this.memory.put(key, e);
+		this.memoryBytes += e.bytes();
+		evict();
+	}
+
+	/**
+	 * Adds a trajectory to the cache on its thread, see {@link #put(Key, Storage, long)}.
+	 */
+	public void putLater(Key key, Storage storage, long size) {
+		if (key == null)
+			throw new IllegalArgumentException("key");
+		if (storage == null)
+			throw new IllegalArgumentException("storage");
+
+		try {
+			this.executor.execute(() -> put(key, storage, size));
+		} catch (RejectedExecutionException e) {
+			storage.release();
+		}
+	}
+
+	/**
+	 * Takes a trajectory from the cache on its thread, see {@link #take(Key, Storage.Type)}.
+	 * Trajectories added before by {@link #putLater} are found.
+	 *
+	 * @param action Called on the thread of the cache with the trajectory, or null if not found or on failure.
+	 *               Called immediately with null once the cache is closed.
+	 */
+	public void takeLater(Key key, Storage.Type type, Consumer<Trajectory> action) {
+		if (action == null)
+			throw new IllegalArgumentException("action");
+
+		try {
+			this.executor.execute(() -> {
+				Trajectory t;
+				try {
+					t = take(key, type);
+				} catch (RuntimeException e) {
+					logger.warn("Failed to restore cached trajectory", e);
+					t = null;
+				}
+				action.accept(t);
+			});
+		} catch (RejectedExecutionException e) {
+			action.accept(null);
+		}
+	}
+
+	/**
+	 * Removes a trajectory from the cache.
+	 *
+	 * @param type The storage type to use for the returned trajectory.
+	 * @return The trajectory, the caller takes ownership of its storage, or null if not found.
+	 */
+	public synchronized Trajectory take(Key key, Storage.Type type) {
+		Entry e = this.memory.remove(key);
+		if (e != null) {
+			this.memoryBytes -= e.bytes();
+			if (e.storage.type() == type)
+				return new Trajectory(e.storage, e.size);
+
+			Storage storage = type.create();
+			try {
+				storage.ensureCapacity(e.size, true);
+				copy(e.storage, storage, e.size * 12);
+			} catch (RuntimeException ex) {
+				storage.release();
+				throw ex;
+			} finally {
+				e.storage.release();
+			}
+			return new Trajectory(storage, e.size);
+		}
+
+		e = this.disk.remove(key);
+		if (e != null) {
+			this.diskBytes -= e.bytes();
+			Storage storage = type.create();
+			try (FileChannel channel = FileChannel.open(e.file, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE)) {
+				storage.ensureCapacity(e.size, true);
+				transfer(storage, e.size * 12, channel, false);
+			} catch (IOException | RuntimeException ex) {
+				storage.release();
+				logger.warn("Failed to read cached trajectory {}", e.file, ex);
+				return null;
+			}
+			return new Trajectory(storage, e.size);
+		}
+
+		return null;
+	}
+
+	public synchronized void remove(Key key) {
+		Entry e = this.memory.remove(key);
+		if (e != null) {
+			this.memoryBytes -= e.bytes();
+			e.storage.release();
+		}
+
+		e = this.disk.remove(key);
+		if (e != null) {
+			this.diskBytes -= e.bytes();
+			delete(e.file);
+		}
+	}
+
+	public synchronized void clear() {
+		for (Entry e : this.memory.values())
+			e.storage.release();
+		for (Entry e : this.disk.values())
+			delete(e.file);
+		this.memory.clear();
+		this.disk.clear();
+		this.memoryBytes = 0;
+		this.diskBytes = 0;
+	}
+
+	/**
+	 * Clears the cache and stops its thread, trajectories added afterwards are released.
+	 */
+	public void close() {
+		this.closed = true;
+		this.executor.shutdown();
+		clear();
+	}
+
+	public synchronized long getMemoryBytes() {
+		return this.memoryBytes;
+	}
+
+	public synchronized long getDiskBytes() {
+		return this.diskBytes;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<Key, Entry>> it = this.memory.entrySet().iterator();
+		while (this.memoryBytes > this.memoryBudget && it.hasNext()) {
+			Map.Entry<Key, Entry> me = it.next();
+			Entry e = me.getValue();
+			it.remove();
+			this.memoryBytes -= e.bytes();
+
+			if (this.directory != null && e.bytes() <= this.diskBudget) {
+				try {
+					Path file = spill(e);
+					this.disk.put(me.getKey(), new Entry(null, file, e.size));
+					this.diskBytes += e.bytes();
+				} catch (IOException | UncheckedIOException ex) {
+					logger.warn("Failed to write trajectory to the disk store", ex);
+				}
+			}
+			e.storage.release();
+		}
+
+		it = this.disk.entrySet().iterator();
+		while (this.diskBytes > this.diskBudget && it.hasNext()) {
+			Entry e = it.next().getValue();
+			it.remove();
+			this.diskBytes -= e.bytes();
+			delete(e.file);
+		}
+	}
+
+	/**
+	 * Moves the points to a mapped storage.
+	 *
+	 * @return The mapped storage, or null on failure.
+	 */
+	private static Storage map(Storage storage, long size) {
+		Storage mapped = Storage.Type.MAPPED.create();
+		try {
+			mapped.ensureCapacity(size, true);
+			copy(storage, mapped, size * 12);
+			return mapped;
+		} catch (RuntimeException e) {
+			mapped.release();
+			logger.warn("Failed to move trajectory out of the direct memory", e);
+			return null;
+		} finally {
+			storage.release();
+		}
+	}
+
+	private Path spill(Entry e) throws IOException {
+		Files.createDirectories(this.directory);
+		Path file = this.directory.resolve("trajectory-" + this.files++ + ".bin");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			transfer(e.storage, e.size * 12, channel, true);
+		} catch (IOException | RuntimeException ex) {
+			delete(file);
+			throw ex;
+		}
+		return file;
+	}
+
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			logger.warn("Failed to delete {}", file, e);
+		}
+	}
+
+	/**
+	 * Copies the first bytes of a storage to another, segments may have different sizes.
+	 */
+	private static void copy(Storage src, Storage dst, long bytes) {
+		int si = 0, di = 0;
+		ByteBuffer s = null, d = null;
+		while (bytes > 0) {
+			if (s == null || !s.hasRemaining())
+				s = src.getBytes(si++);
+			if (d == null || !d.hasRemaining())
+				d = dst.getBytes(di++);
+
+			int n = (int) Math.min(bytes, Math.min(s.remaining(), d.remaining()));
+			d.put(d.position(), s, s.position(), n);
+			s.position(s.position() + n);
+			d.position(d.position() + n);
+			bytes -= n;
+		}
+	}
+
+	private static void transfer(Storage storage, long bytes, FileChannel channel, boolean write) throws IOException {
+		for (int i = 0; bytes > 0; i++) {
+			ByteBuffer b = storage.getBytes(i);
+			if (b.remaining() > bytes)
+				b.limit((int) bytes);
+			bytes -= b.remaining();
+
+			while (b.hasRemaining()) {
+				int n = write ? channel.write(b) : channel.read(b);
+				if (n < 0)
+					throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+	public static final class Trajectory {
+		public final Storage storage;
+		public final long size;
+
+		Trajectory(Storage storage, long size) {
+			this.storage = storage;
+			this.size = size;
+		}
+	}
+
+	private static final class Entry {
+		final Storage storage;
+		final Path file;
+		final long size;
+
+		Entry(Storage storage, Path file, long size) {
+			this.storage = storage;
+			this.file = file;
+			this.size = size;
+		}
+
+		long bytes() {
+			return this.size * 12;
+		}
+	}
+
+	/**
+	 * Everything that determines the points of a trajectory.
+	 */
+	public static final class Key {
+		public final String equations;
+		public final double sigma, rho, beta, x0, y0, z0, h, rtol, atol;
+		public final long points;
+		public final Integrator.Type integrator;
+
+		public Key(String equations, double sigma, double rho, double beta, double x0, double y0, double z0, double h, double rtol, double atol, long points, Integrator.Type integrator) {
+			if (integrator == null)
+				throw new IllegalArgumentException("integrator");
+			this.equations = equations == null || equations.isBlank() ? null : equations.strip();
+			this.sigma = sigma;
+			this.rho = rho;
+			this.beta = beta;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.z0 = z0;
+			this.h = h;
+			this.rtol = rtol;
+			this.atol = atol;
+			this.points = points;
+			this.integrator = integrator;
+		}
+
+		public Key withPoints(long points) {
+			return new Key(this.equations, this.sigma, this.rho, this.beta, this.x0, this.y0, this.z0, this.h, this.rtol, this.atol, points, this.integrator);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key) o;
+			return Double.compare(k.sigma, this.sigma) == 0 && Double.compare(k.rho, this.rho) == 0 && Double.compare(k.beta, this.beta) == 0
+					&& Double.compare(k.x0, this.x0) == 0 && Double.compare(k.y0, this.y0) == 0 && Double.compare(k.z0, this.z0) == 0
+					&& Double.compare(k.h, this.h) == 0 && Double.compare(k.rtol, this.rtol) == 0 && Double.compare(k.atol, this.atol) == 0
+					&& k.points == this.points && k.integrator == this.integrator && Objects.equals(k.equations, this.equations);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.equations, this.sigma, this.rho, this.beta, this.x0, this.y0, this.z0, this.h, this.rtol, this.atol, this.points, this.integrator);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Straight-line JVM instructions computing doubles from the local variables x, y and z.
+ */
+public final class Bytecode {
+	private static final int DCONST_0 = 0x0e, DCONST_1 = 0x0f, LDC2_W = 0x14, DLOAD = 0x18, ALOAD = 0x19, ALOAD_0 = 0x2a, DUP2 = 0x5c,
+			DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DDIV = 0x6f, DNEG = 0x77, RETURN = 0xb1, PUTFIELD = 0xb5, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8;
+
+	private final ConstantPool pool;
+	private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+	Bytecode(ConstantPool pool) {
+		this.pool = pool;
+	}
+
+	public void constant(double value) {
+		if (Double.doubleToRawLongBits(value) == 0) {
+			this.code.write(DCONST_0);
+		} else if (value == 1) {
+			this.code.write(DCONST_1);
+		} else {
+			this.code.write(LDC2_W);
+			writeShort(this.pool.doubleConstant(value));
+		}
+	}
+
+	public void loadVariable(int index) {
+		this.code.write(DLOAD);
+		this.code.write(1 + 2 * index);
+	}
+
+	public void negate() {
+		this.code.write(DNEG);
+	}
+
+	public void square() {
+		this.code.write(DUP2);
+		this.code.write(DMUL);
+	}
+
+	public void operator(char operator) {
+		switch (operator) {
+			case '+':
+				this.code.write(DADD);
+				break;
+			case '-':
+				this.code.write(DSUB);
+				break;
+			case '*':
+				this.code.write(DMUL);
+				break;
+			case '/':
+				this.code.write(DDIV);
+				break;
+			case '^':
+				invokeMath("pow", 2);
+				break;
+			default:
+				throw new IllegalArgumentException("operator");
+		}
+	}
+
+	public void invokeMath(String name, int arity) {
+		invokeStatic("java/lang/Math", name, arity == 1 ? "(D)D" : "(DD)D");
+	}
+
+	void invokeStatic(String owner, String name, String descriptor) {
+		this.code.write(INVOKESTATIC);
+		writeShort(this.pool.methodRef(owner, name, descriptor));
+	}
+
+	void invokeSpecial(String owner, String name, String descriptor) {
+		this.code.write(INVOKESPECIAL);
+		writeShort(this.pool.methodRef(owner, name, descriptor));
+	}
+
+	void loadThis() {
+		this.code.write(ALOAD_0);
+	}
+
+	void loadReference(int local) {
+		this.code.write(ALOAD);
+		this.code.write(local);
+	}
+
+	void putField(String owner, String name, String descriptor) {
+		this.code.write(PUTFIELD);
+		writeShort(this.pool.fieldRef(owner, name, descriptor));
+	}
+
+	void returnVoid() {
+		this.code.write(RETURN);
+	}
+
+	private void writeShort(int value) {
+		this.code.write(value >>> 8);
+		this.code.write(value);
+	}
+
+	byte[] toByteArray() {
+		return this.code.toByteArray();
+	}
+}
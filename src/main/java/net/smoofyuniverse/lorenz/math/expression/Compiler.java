@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import net.smoofyuniverse.lorenz.math.Function;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+
+/**
+ * Compiles expressions into hidden classes implementing {@link Function}.
+ * Parameters are inlined as constants so that the generated method is as simple for the JIT as a hand-written one.
+ */
+public final class Compiler {
+	private static final String NAME = "net/smoofyuniverse/lorenz/math/expression/CompiledFunction",
+			OBJECT = "java/lang/Object", FUNCTION = "net/smoofyuniverse/lorenz/math/Function", VECTOR = "net/smoofyuniverse/lorenz/math/vector/Vector3d";
+	private static final String APPLY_DESCRIPTOR = "(DDDL" + VECTOR + ";)V";
+	private static final int ACC_PUBLIC = 0x0001, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+	private static final int MAGIC = 0xCAFEBABE, VERSION = 52;
+
+	private static final Lookup LOOKUP = MethodHandles.lookup();
+
+	private Compiler() {}
+
+	public static Function compile(Expression dx, Expression dy, Expression dz, double[] parameters) {
+		byte[] bytes = generate(dx, dy, dz, parameters);
+		try {
+			Lookup lookup = LOOKUP.defineHiddenClass(bytes, true);
+			return (Function) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+		} catch (Throwable t) {
+			throw new IllegalStateException("Failed to define compiled function", t);
+		}
+	}
+
+	static byte[] generate(Expression dx, Expression dy, Expression dz, double[] parameters) {
+		ConstantPool pool = new ConstantPool();
+		int thisClass = pool.classRef(NAME), superClass = pool.classRef(OBJECT), function = pool.classRef(FUNCTION);
+		int code = pool.utf8("Code"), init = pool.utf8("<init>"), initDescriptor = pool.utf8("()V"),
+				apply = pool.utf8("apply"), applyDescriptor = pool.utf8(APPLY_DESCRIPTOR);
+
+		Bytecode constructor = new Bytecode(pool);
+		constructor.loadThis();
+		constructor.invokeSpecial(OBJECT, "<init>", "()V");
+		constructor.returnVoid();
+
+		Bytecode body = new Bytecode(pool);
+		Expression[] components = {dx, dy, dz};
+		String[] fields = {"x", "y", "z"};
+		int stack = 0;
+		for (int i = 0; i < 3; i++) {
+			body.loadReference(7);
+			components[i].compile(body, parameters);
+			body.putField(VECTOR, fields[i], "D");
+			stack = Math.max(stack, 1 + components[i].stack());
+		}
+		body.returnVoid();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			pool.writeTo(out);
+
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(function);
+			out.writeShort(0);
+
+			out.writeShort(2);
+			writeMethod(out, init, initDescriptor, code, 1, 1, constructor.toByteArray());
+			writeMethod(out, apply, applyDescriptor, code, stack, 8, body.toByteArray());
+
+			out.writeShort(0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute, int maxStack, int maxLocals, byte[] code) throws IOException {
+		if (code.length > 0xFFFF)
+			throw new IllegalArgumentException("Expression too large");
+
+		out.writeShort(ACC_PUBLIC);
+		out.writeShort(name);
+		out.writeShort(descriptor);
+		out.writeShort(1);
+
+		out.writeShort(codeAttribute);
+		out.writeInt(12 + code.length);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length);
+		out.write(code);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+}
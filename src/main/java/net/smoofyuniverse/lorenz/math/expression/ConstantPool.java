@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+final class ConstantPool {
+	private static final int UTF8 = 1, DOUBLE = 6, CLASS = 7, FIELD_REF = 9, METHOD_REF = 10, NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(this.bytes);
+	private final Map<String, Integer> entries = new HashMap<>();
+	private int count = 1;
+
+	public int utf8(String value) {
+		Integer index = this.entries.get("U" + value);
+		if (index != null)
+			return index;
+
+		try {
+			this.out.writeByte(UTF8);
+			this.out.writeUTF(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return register("U" + value, 1);
+	}
+
+	public int doubleConstant(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		Integer index = this.entries.get("D" + bits);
+		if (index != null)
+			return index;
+
+		try {
+			this.out.writeByte(DOUBLE);
+			this.out.writeLong(bits);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return register("D" + bits, 2);
+	}
+
+	public int classRef(String name) {
+		Integer index = this.entries.get("C" + name);
+		if (index != null)
+			return index;
+
+		int n = utf8(name);
+		write(CLASS, n);
+		return register("C" + name, 1);
+	}
+
+	public int fieldRef(String owner, String name, String descriptor) {
+		return memberRef(FIELD_REF, owner, name, descriptor);
+	}
+
+	public int methodRef(String owner, String name, String descriptor) {
+		return memberRef(METHOD_REF, owner, name, descriptor);
+	}
+
+	private int memberRef(int tag, String owner, String name, String descriptor) {
+		String key = "M" + tag + owner + '.' + name + descriptor;
+		Integer index = this.entries.get(key);
+		if (index != null)
+			return index;
+
+		int c = classRef(owner), nt = nameAndType(name, descriptor);
+		write(tag, c, nt);
+		return register(key, 1);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		String key = "N" + name + descriptor;
+		Integer index = this.entries.get(key);
+		if (index != null)
+			return index;
+
+		int n = utf8(name), d = utf8(descriptor);
+		write(NAME_AND_TYPE, n, d);
+		return register(key, 1);
+	}
+
+	private void write(int tag, int... indexes) {
+		try {
+			this.out.writeByte(tag);
+			for (int i : indexes)
+				this.out.writeShort(i);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int register(String key, int slots) {
+		int index = this.count;
+		if (index + slots > 0xFFFF)
+			throw new IllegalStateException("Constant pool overflow");
+		this.count += slots;
+		this.entries.put(key, index);
+		return index;
+	}
+
+	public void writeTo(DataOutputStream out) throws IOException {
+		out.writeShort(this.count);
+		this.bytes.writeTo(out);
+	}
+}
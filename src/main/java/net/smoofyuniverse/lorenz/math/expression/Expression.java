@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+public interface Expression {
+
+	double evaluate(double x, double y, double z, double[] parameters);
+
+	void compile(Bytecode code, double[] parameters);
+
+	/**
+	 * @return The maximum operand stack size, in slots, needed to compute this expression.
+	 */
+	int stack();
+
+	default boolean isConstant() {
+		return false;
+	}
+
+	final class Constant implements Expression {
+		public final double value;
+
+		public Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			return this.value;
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			code.constant(this.value);
+		}
+
+		@Override
+		public int stack() {
+			return 2;
+		}
+
+		@Override
+		public boolean isConstant() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return Double.toString(this.value);
+		}
+	}
+
+	final class Variable implements Expression {
+		public final int index;
+
+		public Variable(int index) {
+			if (index < 0 || index > 2)
+				throw new IllegalArgumentException("index");
+			this.index = index;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			return this.index == 0 ? x : this.index == 1 ? y : z;
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			code.loadVariable(this.index);
+		}
+
+		@Override
+		public int stack() {
+			return 2;
+		}
+
+		@Override
+		public String toString() {
+			return this.index == 0 ? "x" : this.index == 1 ? "y" : "z";
+		}
+	}
+
+	final class Parameter implements Expression {
+		public final String name;
+		public final int index;
+
+		public Parameter(String name, int index) {
+			this.name = name;
+			this.index = index;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			return parameters[this.index];
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			code.constant(parameters[this.index]);
+		}
+
+		@Override
+		public int stack() {
+			return 2;
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+
+	final class Negate implements Expression {
+		public final Expression operand;
+
+		public Negate(Expression operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			return -this.operand.evaluate(x, y, z, parameters);
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			this.operand.compile(code, parameters);
+			code.negate();
+		}
+
+		@Override
+		public int stack() {
+			return this.operand.stack();
+		}
+
+		@Override
+		public String toString() {
+			return "-(" + this.operand + ")";
+		}
+	}
+
+	final class Binary implements Expression {
+		public final char operator;
+		public final Expression left, right;
+
+		public Binary(char operator, Expression left, Expression right) {
+			if ("+-*/^".indexOf(operator) == -1)
+				throw new IllegalArgumentException("operator");
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			double a = this.left.evaluate(x, y, z, parameters), b = this.right.evaluate(x, y, z, parameters);
+			switch (this.operator) {
+				case '+':
+					return a + b;
+				case '-':
+					return a - b;
+				case '*':
+					return a * b;
+				case '/':
+					return a / b;
+				default:
+					return Math.pow(a, b);
+			}
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			this.left.compile(code, parameters);
+			if (this.operator == '^' && isSquare()) {
+				code.square();
+				return;
+			}
+			this.right.compile(code, parameters);
+			code.operator(this.operator);
+		}
+
+		private boolean isSquare() {
+			return this.right instanceof Constant && ((Constant) this.right).value == 2;
+		}
+
+		@Override
+		public int stack() {
+			if (this.operator == '^' && isSquare())
+				return Math.max(this.left.stack(), 4);
+			return Math.max(this.left.stack(), 2 + this.right.stack());
+		}
+
+		@Override
+		public String toString() {
+			return "(" + this.left + " " + this.operator + " " + this.right + ")";
+		}
+	}
+
+	final class Call implements Expression {
+		public final MathFunction function;
+		public final Expression[] arguments;
+
+		public Call(MathFunction function, Expression... arguments) {
+			if (arguments.length != function.arity)
+				throw new IllegalArgumentException("arguments");
+			this.function = function;
+			this.arguments = arguments;
+		}
+
+		@Override
+		public double evaluate(double x, double y, double z, double[] parameters) {
+			double a = this.arguments[0].evaluate(x, y, z, parameters);
+			return this.function.arity == 1 ? this.function.apply(a, 0) : this.function.apply(a, this.arguments[1].evaluate(x, y, z, parameters));
+		}
+
+		@Override
+		public void compile(Bytecode code, double[] parameters) {
+			for (Expression e : this.arguments)
+				e.compile(code, parameters);
+			code.invokeMath(this.function.name, this.function.arity);
+		}
+
+		@Override
+		public int stack() {
+			int stack = 0;
+			for (int i = 0; i < this.arguments.length; i++)
+				stack = Math.max(stack, 2 * i + this.arguments[i].stack());
+			return stack;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder b = new StringBuilder(this.function.name).append('(');
+			for (int i = 0; i < this.arguments.length; i++) {
+				if (i != 0)
+					b.append(", ");
+				b.append(this.arguments[i]);
+			}
+			return b.append(')').toString();
+		}
+	}
+}
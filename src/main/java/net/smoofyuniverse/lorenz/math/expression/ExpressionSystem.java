@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.lorenz.math.Function;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+/**
+ * Autonomous 3D system defined by equations such as "dx = a*(y - x)" and named parameters such as "a = 10".
+ * Statements are separated by new lines or semicolons, '#' starts a comment.
+ */
+public final class ExpressionSystem {
+	private static final Logger logger = ApplicationLogger.get(ExpressionSystem.class);
+
+	public static final String LORENZ = "dx = sigma*(y - x); dy = rho*x - y - x*z; dz = x*y - beta*z; sigma = 10; rho = 28; beta = 8/3",
+			ROSSLER = "dx = -y - z; dy = x + a*y; dz = b + z*(x - c); a = 0.2; b = 0.2; c = 5.7",
+			CHEN = "dx = a*(y - x); dy = (c - a)*x - x*z + c*y; dz = x*y - b*z; a = 35; b = 3; c = 28",
+			THOMAS = "dx = sin(y) - b*x; dy = sin(z) - b*y; dz = sin(x) - b*z; b = 0.208186",
+			HALVORSEN = "dx = -a*x - 4*y - 4*z - y^2; dy = -a*y - 4*z - 4*x - z^2; dz = -a*z - 4*x - 4*y - x^2; a = 1.89";
+
+	private static final List<String> EQUATIONS = List.of("dx", "dy", "dz");
+
+	private final String[] names;
+	private final double[] parameters;
+	private final Expression dx, dy, dz;
+
+	private ExpressionSystem(String[] names, double[] parameters, Expression dx, Expression dy, Expression dz) {
+		this.names = names;
+		this.parameters = parameters;
+		this.dx = dx;
+		this.dy = dy;
+		this.dz = dz;
+	}
+
+	public int getParameterCount() {
+		return this.names.length;
+	}
+
+	public String getParameterName(int index) {
+		return this.names[index];
+	}
+
+	public double getParameter(int index) {
+		return this.parameters[index];
+	}
+
+	public void setParameter(int index, double value) {
+		this.parameters[index] = value;
+	}
+
+	public void setParameter(String name, double value) {
+		for (int i = 0; i < this.names.length; i++) {
+			if (this.names[i].equals(name)) {
+				this.parameters[i] = value;
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Unknown parameter '" + name + "'");
+	}
+
+	public Function interpret() {
+		Expression dx = this.dx, dy = this.dy, dz = this.dz;
+		double[] parameters = this.parameters.clone();
+		return (x, y, z, output) -> {
+			output.x = dx.evaluate(x, y, z, parameters);
+			output.y = dy.evaluate(x, y, z, parameters);
+			output.z = dz.evaluate(x, y, z, parameters);
+		};
+	}
+
+	public Function compile() {
+		return Compiler.compile(this.dx, this.dy, this.dz, this.parameters);
+	}
+
+	/**
+	 * Compiles the system, or interprets it if the compiled class cannot be defined.
+	 */
+	public Function toFunction() {
+		try {
+			return compile();
+		} catch (IllegalStateException e) {
+			logger.warn("Failed to compile equations, falling back to the interpreter", e);
+			return interpret();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("dx = ").append(this.dx).append("; dy = ").append(this.dy).append("; dz = ").append(this.dz);
+		for (int i = 0; i < this.names.length; i++)
+			b.append("; ").append(this.names[i]).append(" = ").append(this.parameters[i]);
+		return b.toString();
+	}
+
+	public static ExpressionSystem parse(String source) {
+		Map<String, String> statements = new LinkedHashMap<>();
+		for (String line : source.split("[;\n]")) {
+			int comment = line.indexOf('#');
+			if (comment != -1)
+				line = line.substring(0, comment);
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+
+			int eq = line.indexOf('=');
+			if (eq == -1)
+				throw new IllegalArgumentException("Missing '=' in '" + line + "'");
+
+			String name = line.substring(0, eq).trim();
+			if (!name.matches("[A-Za-z_][A-Za-z0-9_]*") || name.equals("x") || name.equals("y") || name.equals("z") || name.equals("pi") || name.equals("e") || MathFunction.of(name) != null)
+				throw new IllegalArgumentException("Invalid name '" + name + "'");
+			if (statements.put(name, line.substring(eq + 1)) != null)
+				throw new IllegalArgumentException("Duplicate definition of '" + name + "'");
+		}
+
+		for (String eq : EQUATIONS) {
+			if (!statements.containsKey(eq))
+				throw new IllegalArgumentException("Missing equation '" + eq + "'");
+		}
+
+		Map<String, Integer> indexes = new HashMap<>();
+		List<String> names = new ArrayList<>();
+		for (String name : statements.keySet()) {
+			if (!EQUATIONS.contains(name)) {
+				indexes.put(name, names.size());
+				names.add(name);
+			}
+		}
+
+		double[] parameters = new double[names.size()];
+		for (int i = 0; i < parameters.length; i++) {
+			Expression e = new Parser(statements.get(names.get(i)), Collections.emptyMap()).parse();
+			if (!e.isConstant())
+				throw new IllegalArgumentException("Parameter '" + names.get(i) + "' must be constant");
+			parameters[i] = e.evaluate(0, 0, 0, null);
+		}
+
+		return new ExpressionSystem(names.toArray(new String[0]), parameters,
+				new Parser(statements.get("dx"), indexes).parse(),
+				new Parser(statements.get("dy"), indexes).parse(),
+				new Parser(statements.get("dz"), indexes).parse());
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import java.util.Locale;
+
+/**
+ * Functions of {@link Math} available in expressions.
+ */
+public enum MathFunction {
+	SIN(1), COS(1), TAN(1), ASIN(1), ACOS(1), ATAN(1), SINH(1), COSH(1), TANH(1),
+	EXP(1), LOG(1), LOG10(1), SQRT(1), CBRT(1), ABS(1), SIGNUM(1),
+	POW(2), ATAN2(2), MIN(2), MAX(2);
+
+	public final String name;
+	public final int arity;
+
+	MathFunction(int arity) {
+		this.name = name().toLowerCase(Locale.ROOT);
+		this.arity = arity;
+	}
+
+	public double apply(double a, double b) {
+		switch (this) {
+			case SIN:
+				return Math.sin(a);
+			case COS:
+				return Math.cos(a);
+			case TAN:
+				return Math.tan(a);
+			case ASIN:
+				return Math.asin(a);
+			case ACOS:
+				return Math.acos(a);
+			case ATAN:
+				return Math.atan(a);
+			case SINH:
+				return Math.sinh(a);
+			case COSH:
+				return Math.cosh(a);
+			case TANH:
+				return Math.tanh(a);
+			case EXP:
+				return Math.exp(a);
+			case LOG:
+				return Math.log(a);
+			case LOG10:
+				return Math.log10(a);
+			case SQRT:
+				return Math.sqrt(a);
+			case CBRT:
+				return Math.cbrt(a);
+			case ABS:
+				return Math.abs(a);
+			case SIGNUM:
+				return Math.signum(a);
+			case POW:
+				return Math.pow(a, b);
+			case ATAN2:
+				return Math.atan2(a, b);
+			case MIN:
+				return Math.min(a, b);
+			case MAX:
+				return Math.max(a, b);
+			default:
+				throw new IllegalStateException();
+		}
+	}
+
+	public static MathFunction of(String name) {
+		for (MathFunction f : values()) {
+			if (f.name.equals(name))
+				return f;
+		}
+		return null;
+	}
+}
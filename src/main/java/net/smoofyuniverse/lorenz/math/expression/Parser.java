@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recursive descent parser for arithmetic expressions of x, y, z and named parameters.
+ * Sub-expressions that only involve constants are folded while parsing.
+ */
+public final class Parser {
+	private final String text;
+	private final Map<String, Integer> parameters;
+	private int pos;
+
+	public Parser(String text, Map<String, Integer> parameters) {
+		this.text = text;
+		this.parameters = parameters;
+	}
+
+	public Expression parse() {
+		this.pos = 0;
+		Expression e = parseSum();
+		skipWhitespace();
+		if (this.pos != this.text.length())
+			throw error("Unexpected character '" + this.text.charAt(this.pos) + "'");
+		return e;
+	}
+
+	private Expression parseSum() {
+		Expression e = parseProduct();
+		while (true) {
+			char c = peek();
+			if (c != '+' && c != '-')
+				return e;
+			this.pos++;
+			e = fold(new Expression.Binary(c, e, parseProduct()));
+		}
+	}
+
+	private Expression parseProduct() {
+		Expression e = parseUnary();
+		while (true) {
+			char c = peek();
+			if (c != '*' && c != '/')
+				return e;
+			this.pos++;
+			e = fold(new Expression.Binary(c, e, parseUnary()));
+		}
+	}
+
+	private Expression parseUnary() {
+		char c = peek();
+		if (c == '-') {
+			this.pos++;
+			return fold(new Expression.Negate(parseUnary()));
+		}
+		if (c == '+') {
+			this.pos++;
+			return parseUnary();
+		}
+		return parsePower();
+	}
+
+	private Expression parsePower() {
+		Expression e = parsePrimary();
+		if (peek() == '^') {
+			this.pos++;
+			return fold(new Expression.Binary('^', e, parseUnary()));
+		}
+		return e;
+	}
+
+	private Expression parsePrimary() {
+		char c = peek();
+		if (c == '(') {
+			this.pos++;
+			Expression e = parseSum();
+			expect(')');
+			return e;
+		}
+		if (Character.isDigit(c) || c == '.')
+			return new Expression.Constant(parseNumber());
+		if (Character.isLetter(c) || c == '_')
+			return parseIdentifier();
+		throw error(c == 0 ? "Unexpected end of expression" : "Unexpected character '" + c + "'");
+	}
+
+	private double parseNumber() {
+		int start = this.pos;
+		while (this.pos < this.text.length() && (Character.isDigit(this.text.charAt(this.pos)) || this.text.charAt(this.pos) == '.'))
+			this.pos++;
+		if (this.pos < this.text.length() && (this.text.charAt(this.pos) == 'e' || this.text.charAt(this.pos) == 'E')) {
+			int mark = this.pos++;
+			if (this.pos < this.text.length() && (this.text.charAt(this.pos) == '+' || this.text.charAt(this.pos) == '-'))
+				this.pos++;
+			if (this.pos < this.text.length() && Character.isDigit(this.text.charAt(this.pos))) {
+				while (this.pos < this.text.length() && Character.isDigit(this.text.charAt(this.pos)))
+					this.pos++;
+			} else {
+				this.pos = mark;
+			}
+		}
+
+		try {
+			return Double.parseDouble(this.text.substring(start, this.pos));
+		} catch (NumberFormatException e) {
+			this.pos = start;
+			throw error("Invalid number");
+		}
+	}
+
+	private Expression parseIdentifier() {
+		int start = this.pos;
+		while (this.pos < this.text.length() && (Character.isLetterOrDigit(this.text.charAt(this.pos)) || this.text.charAt(this.pos) == '_'))
+			this.pos++;
+		String name = this.text.substring(start, this.pos);
+
+		if (peek() == '(') {
+			MathFunction f = MathFunction.of(name);
+			if (f == null) {
+				this.pos = start;
+				throw error("Unknown function '" + name + "'");
+			}
+			this.pos++;
+
+			List<Expression> args = new ArrayList<>();
+			args.add(parseSum());
+			while (peek() == ',') {
+				this.pos++;
+				args.add(parseSum());
+			}
+			expect(')');
+
+			if (args.size() != f.arity) {
+				this.pos = start;
+				throw error("Function '" + name + "' expects " + f.arity + " argument(s)");
+			}
+			return fold(new Expression.Call(f, args.toArray(new Expression[0])));
+		}
+
+		switch (name) {
+			case "x":
+				return new Expression.Variable(0);
+			case "y":
+				return new Expression.Variable(1);
+			case "z":
+				return new Expression.Variable(2);
+			case "pi":
+				return new Expression.Constant(Math.PI);
+			case "e":
+				return new Expression.Constant(Math.E);
+		}
+
+		Integer index = this.parameters.get(name);
+		if (index == null) {
+			this.pos = start;
+			throw error("Unknown parameter '" + name + "'");
+		}
+		return new Expression.Parameter(name, index);
+	}
+
+	private static Expression fold(Expression e) {
+		if (e instanceof Expression.Negate) {
+			if (!((Expression.Negate) e).operand.isConstant())
+				return e;
+		} else if (e instanceof Expression.Binary) {
+			Expression.Binary b = (Expression.Binary) e;
+			if (!b.left.isConstant() || !b.right.isConstant())
+				return e;
+		} else if (e instanceof Expression.Call) {
+			for (Expression arg : ((Expression.Call) e).arguments) {
+				if (!arg.isConstant())
+					return e;
+			}
+		} else {
+			return e;
+		}
+		return new Expression.Constant(e.evaluate(0, 0, 0, null));
+	}
+
+	private void expect(char c) {
+		if (peek() != c)
+			throw error("Expected '" + c + "'");
+		this.pos++;
+	}
+
+	private char peek() {
+		skipWhitespace();
+		return this.pos < this.text.length() ? this.text.charAt(this.pos) : 0;
+	}
+
+	private void skipWhitespace() {
+		while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos)))
+			this.pos++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + this.pos + " in '" + this.text + "'");
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Storage in native memory allocated in segments.
+ * All segments but the last are full. The last one is sized to the requested capacity when growing exactly,
+ * and the first one grows geometrically so that small series do not reserve a whole segment.
+ * Growing a partial segment copies it, the previous buffer is freed on release since published arrays may still reference it.
+ */
+public final class DirectStorage implements Storage {
+	public static final int SHIFT = 18, SEGMENT_SIZE = 1 << SHIFT, MIN_SEGMENT_SIZE = 1 << 10;
+
+	private final List<ByteBuffer> retired = new ArrayList<>();
+	private ByteBuffer[] bytes = new ByteBuffer[0];
+	private FloatBuffer[] segments = new FloatBuffer[0];
+	private int count;
+	private long capacity;
+
+	@Override
+	public Type type() {
+		return Type.DIRECT;
+	}
+
+	@Override
+	public int shift() {
+		return SHIFT;
+	}
+
+	@Override
+	public long capacity() {
+		return this.capacity;
+	}
+
+	@Override
+	public void ensureCapacity(long capacity, boolean exact) {
+		if (capacity <= this.capacity)
+			return;
+		long count = (capacity + SEGMENT_SIZE - 1) >>> SHIFT;
+		if (count > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("capacity");
+
+		// Published arrays are never modified
+		ByteBuffer[] bytes = Arrays.copyOf(this.bytes, (int) count);
+		FloatBuffer[] segments = Arrays.copyOf(this.segments, (int) count);
+		int first = Math.max(this.count - 1, 0);
+		try {
+			grow(bytes, segments, first, capacity, exact);
+		} catch (RuntimeException e) {
+			// Frees the buffers allocated by this call, the storage is unchanged
+			for (int i = first; i < count; i++) {
+				if (i >= this.count || bytes[i] != this.bytes[i])
+					Memory.free(bytes[i]);
+			}
+			throw e;
+		}
+
+		for (int i = first; i < this.count; i++) {
+			if (bytes[i] != this.bytes[i])
+				this.retired.add(this.bytes[i]);
+		}
+		this.bytes = bytes;
+		this.segments = segments;
+		this.count = (int) count;
+		this.capacity = ((count - 1) << SHIFT) + bytes[(int) count - 1].capacity() / 12;
+	}
+
+	private void grow(ByteBuffer[] bytes, FloatBuffer[] segments, int first, long capacity, boolean exact) {
+		int count = bytes.length;
+		for (int i = first; i < count; i++) {
+			int current = i < this.count ? bytes[i].capacity() / 12 : 0, size = SEGMENT_SIZE;
+			if (i == count - 1) {
+				size = (int) (capacity - ((long) i << SHIFT));
+				if (!exact && i == 0)
+					size = Math.min(Math.max(size, Math.max(current * 2, MIN_SEGMENT_SIZE)), SEGMENT_SIZE);
+				else if (!exact)
+					size = SEGMENT_SIZE;
+			}
+			if (size <= current)
+				continue;
+
+			ByteBuffer buffer = Memory.allocate(size * 12);
+			if (current != 0)
+				buffer.put(0, bytes[i], 0, current * 12);
+			bytes[i] = buffer;
+			segments[i] = buffer.asFloatBuffer();
+		}
+	}
+
+	@Override
+	public int segmentCount() {
+		return this.count;
+	}
+
+	@Override
+	public FloatBuffer getSegment(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException(index);
+		return this.segments[index];
+	}
+
+	@Override
+	public FloatBuffer[] segments() {
+		return this.segments;
+	}
+
+	@Override
+	public ByteBuffer getBytes(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException(index);
+		return this.bytes[index].duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public void release() {
+		ByteBuffer[] bytes = this.bytes;
+		int count = this.count;
+
+		this.bytes = new ByteBuffer[0];
+		this.segments = new FloatBuffer[0];
+		this.count = 0;
+		this.capacity = 0;
+
+		for (int i = 0; i < count; i++)
+			Memory.free(bytes[i]);
+		for (ByteBuffer buffer : this.retired)
+			Memory.free(buffer);
+		this.retired.clear();
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Storage backed by a temporary file mapped in fixed-size segments.
+ * The operating system is free to page cold segments out, so a series is only limited by disk space.
+ */
+public final class MappedStorage implements Storage {
+	public static final int SHIFT = 20, SEGMENT_SIZE = 1 << SHIFT;
+	private static final long SEGMENT_BYTES = SEGMENT_SIZE * 12L;
+
+	private final Path directory;
+	private FileChannel channel;
+	private MappedByteBuffer[] mappings = new MappedByteBuffer[0];
+	private FloatBuffer[] segments = new FloatBuffer[0];
+	private int count;
+
+	public MappedStorage() {
+		this(null);
+	}
+
+	public MappedStorage(Path directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public Type type() {
+		return Type.MAPPED;
+	}
+
+	@Override
+	public int shift() {
+		return SHIFT;
+	}
+
+	@Override
+	public long capacity() {
+		return (long) this.count << SHIFT;
+	}
+
+	@Override
+	public void ensureCapacity(long capacity, boolean exact) {
+		int count = (int) ((capacity + SEGMENT_SIZE - 1) >>> SHIFT);
+		if (count <= this.count)
+			return;
+
+		try {
+			if (this.channel == null) {
+				Path file = this.directory == null ? Files.createTempFile("lorenz-", ".series") : Files.createTempFile(this.directory, "lorenz-", ".series");
+				this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			}
+
+			// Published arrays are never modified
+			MappedByteBuffer[] mappings = Arrays.copyOf(this.mappings, count);
+			FloatBuffer[] segments = Arrays.copyOf(this.segments, count);
+			for (int i = this.count; i < count; i++) {
+				MappedByteBuffer mapping = Memory.map(this.channel, i * SEGMENT_BYTES, SEGMENT_BYTES);
+				mappings[i] = mapping;
+				segments[i] = mapping.asFloatBuffer();
+			}
+			this.mappings = mappings;
+			this.segments = segments;
+			this.count = count;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public int segmentCount() {
+		return this.count;
+	}
+
+	@Override
+	public FloatBuffer getSegment(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException(index);
+		return this.segments[index];
+	}
+
+	@Override
+	public FloatBuffer[] segments() {
+		return this.segments;
+	}
+
+	@Override
+	public ByteBuffer getBytes(int index) {
+		if (index < 0 || index >= this.count)
+			throw new IndexOutOfBoundsException(index);
+		return this.mappings[index].duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public void release() {
+		MappedByteBuffer[] mappings = this.mappings;
+		int count = this.count;
+
+		this.mappings = new MappedByteBuffer[0];
+		this.segments = new FloatBuffer[0];
+		this.count = 0;
+
+		for (int i = 0; i < count; i++)
+			Memory.unmap(mappings[i]);
+
+		if (this.channel != null) {
+			try {
+				this.channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				this.channel = null;
+			}
+		}
+	}
+}
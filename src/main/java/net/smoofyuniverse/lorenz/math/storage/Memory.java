@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocation and explicit release of direct and mapped buffers, keeping track of the memory held.
+ * Falls back to the garbage collector when the cleaner is not accessible.
+ */
+final class Memory {
+	private static final Logger logger = ApplicationLogger.get(Memory.class);
+	private static final MethodHandle invokeCleaner = findCleaner();
+	static final AtomicLong directBytes = new AtomicLong(), mappedBytes = new AtomicLong();
+
+	private Memory() {}
+
+	private static MethodHandle findCleaner() {
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			return MethodHandles.lookup().findVirtual(c, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class)).bindTo(f.get(null));
+		} catch (Exception e) {
+			logger.warn("Direct buffers will be released by the garbage collector", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException If the direct memory is exhausted, like other allocation failures.
+	 */
+	public static ByteBuffer allocate(int capacity) {
+		ByteBuffer buffer;
+		try {
+			buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+		} catch (OutOfMemoryError e) {
+			throw new IllegalArgumentException("Not enough direct memory for " + capacity + " bytes, " + directBytes.get() + " bytes in use", e);
+		}
+		directBytes.addAndGet(capacity);
+		return buffer;
+	}
+
+	public static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+		buffer.order(ByteOrder.nativeOrder());
+		mappedBytes.addAndGet(size);
+		return buffer;
+	}
+
+	/**
+	 * Frees the memory of the buffer immediately.
+	 * The buffer and all its views must not be accessed afterwards.
+	 *
+	 * @param buffer A direct buffer returned by {@link #allocate(int)}.
+	 */
+	public static void free(ByteBuffer buffer) {
+		if (buffer == null)
+			return;
+		directBytes.addAndGet(-buffer.capacity());
+		clean(buffer);
+	}
+
+	/**
+	 * Unmaps the buffer immediately.
+	 * The buffer and all its views must not be accessed afterwards.
+	 *
+	 * @param buffer A mapped buffer returned by {@link #map(FileChannel, long, long)}.
+	 */
+	public static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null)
+			return;
+		mappedBytes.addAndGet(-buffer.capacity());
+		clean(buffer);
+	}
+
+	private static void clean(ByteBuffer buffer) {
+		if (invokeCleaner == null)
+			return;
+		try {
+			invokeCleaner.invokeExact(buffer);
+		} catch (Throwable t) {
+			logger.warn("Failed to free buffer", t);
+		}
+	}
+}
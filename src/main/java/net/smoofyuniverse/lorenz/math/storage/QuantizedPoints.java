@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Read-only copy of points encoded as 16-bit fixed-point values relative to the center of each chunk of points.
+ * Each axis of a chunk has its own scale, fitted to the extent of the chunk, and a value decodes to origin + q * scale.
+ * A chunk also encodes the two following points so that it can be drawn as a continuous strip on its own.
+ */
+public final class QuantizedPoints {
+	public static final int CHUNK_SHIFT = 12, CHUNK_SIZE = 1 << CHUNK_SHIFT, CHUNK_STRIDE = CHUNK_SIZE + 2;
+	public static final int SEGMENT_SHIFT = 6, SEGMENT_CHUNKS = 1 << SEGMENT_SHIFT;
+	public static final int POINT_BYTES = 6;
+
+	private final ByteBuffer[] segments;
+	private final float[] origins, scales;
+	private final long size;
+	private final float maxError;
+
+	private QuantizedPoints(ByteBuffer[] segments, float[] origins, float[] scales, long size, float maxError) {
+		this.segments = segments;
+		this.origins = origins;
+		this.scales = scales;
+		this.size = size;
+		this.maxError = maxError;
+	}
+
+	/**
+	 * @param segments The segments of a storage.
+	 * @param shift    The shift of the storage.
+	 * @param size     The number of points to encode.
+	 */
+	public static QuantizedPoints encode(FloatBuffer[] segments, int shift, long size) {
+		long chunks = (size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+		if (chunks * 3 > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("size");
+
+		float[] origins = new float[(int) chunks * 3], scales = new float[(int) chunks * 3];
+		ByteBuffer[] encoded = new ByteBuffer[(int) ((chunks + SEGMENT_CHUNKS - 1) >>> SEGMENT_SHIFT)];
+		float[] points = new float[CHUNK_STRIDE * 3];
+		short[] values = new short[CHUNK_STRIDE * 3];
+		double maxError = 0;
+
+		for (int c = 0; c < chunks; c++) {
+			long start = (long) c << CHUNK_SHIFT;
+			int n = (int) Math.min(size - start, CHUNK_STRIDE);
+			read(segments, shift, start, n, points);
+
+			for (int k = 0; k < 3; k++) {
+				float min = points[k], max = points[k];
+				for (int i = k + 3; i < n * 3; i += 3) {
+					min = Math.min(min, points[i]);
+					max = Math.max(max, points[i]);
+				}
+
+				float origin = (min + max) / 2, scale = (max - min) / 2 / Short.MAX_VALUE;
+				origins[c * 3 + k] = origin;
+				scales[c * 3 + k] = scale;
+
+				float inverse = scale == 0 ? 0 : 1 / scale;
+				for (int i = k; i < n * 3; i += 3) {
+					int q = Math.round((points[i] - origin) * inverse);
+					q = Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, q));
+					values[i] = (short) q;
+					maxError = Math.max(maxError, Math.abs(origin + q * scale - points[i]));
+				}
+			}
+
+			int s = c >>> SEGMENT_SHIFT;
+			if (encoded[s] == null) {
+				int count = (int) Math.min(SEGMENT_CHUNKS, chunks - ((long) s << SEGMENT_SHIFT));
+				try {
+					encoded[s] = Memory.allocate(count * CHUNK_STRIDE * POINT_BYTES);
+				} catch (IllegalArgumentException e) {
+					for (ByteBuffer segment : encoded)
+						Memory.free(segment);
+					throw e;
+				}
+			}
+			encoded[s].duplicate().order(ByteOrder.nativeOrder()).position((c & (SEGMENT_CHUNKS - 1)) * CHUNK_STRIDE * POINT_BYTES)
+					.asShortBuffer().put(values, 0, n * 3);
+		}
+
+		return new QuantizedPoints(encoded, origins, scales, size, (float) maxError);
+	}
+
+	/**
+	 * Copies consecutive points which may span several segments.
+	 */
+	private static void read(FloatBuffer[] segments, int shift, long start, int length, float[] output) {
+		long mask = (1L << shift) - 1;
+		int offset = 0;
+		while (offset < length) {
+			long index = start + offset;
+			int pos = (int) (index & mask), n = (int) Math.min(length - offset, (mask + 1) - pos);
+			segments[(int) (index >>> shift)].get(pos * 3, output, offset * 3, n * 3);
+			offset += n;
+		}
+	}
+
+	public long size() {
+		return this.size;
+	}
+
+	public int chunkCount() {
+		return this.origins.length / 3;
+	}
+
+	public int segmentCount() {
+		return this.segments.length;
+	}
+
+	/**
+	 * Chunk i of the segment starts at byte i * {@link #CHUNK_STRIDE} * {@link #POINT_BYTES}.
+	 *
+	 * @return The native-order bytes of the segment, 3 signed shorts per point.
+	 */
+	public ByteBuffer getSegment(int index) {
+		return this.segments[index].duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	public float getOrigin(int chunk, int component) {
+		return this.origins[chunk * 3 + component];
+	}
+
+	public float getScale(int chunk, int component) {
+		return this.scales[chunk * 3 + component];
+	}
+
+	public float get(long index, int component) {
+		if (index < 0 || index >= this.size)
+			throw new IndexOutOfBoundsException(Long.toString(index));
+		int c = (int) (index >>> CHUNK_SHIFT);
+		int pos = ((c & (SEGMENT_CHUNKS - 1)) * CHUNK_STRIDE + (int) (index & (CHUNK_SIZE - 1))) * POINT_BYTES + component * 2;
+		return this.origins[c * 3 + component] + this.segments[c >>> SEGMENT_SHIFT].getShort(pos) * this.scales[c * 3 + component];
+	}
+
+	/**
+	 * @return The memory held by the encoded points and the chunk headers, in bytes.
+	 */
+	public long getBytes() {
+		long bytes = this.origins.length * 8L;
+		for (ByteBuffer segment : this.segments)
+			bytes += segment.capacity();
+		return bytes;
+	}
+
+	/**
+	 * @return The size of the same points as floats divided by {@link #getBytes()}.
+	 */
+	public double getCompressionRatio() {
+		long bytes = getBytes();
+		return bytes == 0 ? 1 : this.size * 12D / bytes;
+	}
+
+	/**
+	 * @return The largest difference between an encoded coordinate and the original one.
+	 */
+	public float getMaxError() {
+		return this.maxError;
+	}
+
+	public void release() {
+		for (ByteBuffer segment : this.segments)
+			Memory.free(segment);
+	}
+}
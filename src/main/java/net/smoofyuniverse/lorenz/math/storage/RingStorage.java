@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Contiguous native storage of fixed capacity used by streaming series.
+ * An extra point after the end mirrors the first point so that a wrapped window can be drawn as two strips.
+ */
+public final class RingStorage implements Storage {
+	public static final int MAX_CAPACITY = Integer.MAX_VALUE / 12 - 1;
+
+	private final int ring;
+	private ByteBuffer bytes;
+	private FloatBuffer buffer;
+	private FloatBuffer[] segments = new FloatBuffer[0];
+
+	public RingStorage(int ring) {
+		if (ring <= 0 || ring > MAX_CAPACITY)
+			throw new IllegalArgumentException("ring");
+		this.ring = ring;
+	}
+
+	public int ring() {
+		return this.ring;
+	}
+
+	@Override
+	public Type type() {
+		return Type.DIRECT;
+	}
+
+	@Override
+	public int shift() {
+		return 31;
+	}
+
+	@Override
+	public long capacity() {
+		return this.buffer == null ? 0 : this.ring + 1;
+	}
+
+	@Override
+	public void ensureCapacity(long capacity, boolean exact) {
+		if (capacity > this.ring + 1)
+			throw new IllegalArgumentException("capacity");
+		if (this.buffer == null && capacity > 0) {
+			this.bytes = Memory.allocate((this.ring + 1) * 12);
+			this.buffer = this.bytes.asFloatBuffer();
+			this.segments = new FloatBuffer[]{this.buffer};
+		}
+	}
+
+	@Override
+	public int segmentCount() {
+		return this.buffer == null ? 0 : 1;
+	}
+
+	@Override
+	public FloatBuffer getSegment(int index) {
+		if (index != 0 || this.buffer == null)
+			throw new IndexOutOfBoundsException(index);
+		return this.buffer;
+	}
+
+	@Override
+	public FloatBuffer[] segments() {
+		return this.segments;
+	}
+
+	@Override
+	public ByteBuffer getBytes(int index) {
+		if (index != 0 || this.bytes == null)
+			throw new IndexOutOfBoundsException(index);
+		return this.bytes.duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	@Override
+	public void release() {
+		ByteBuffer bytes = this.bytes;
+		this.bytes = null;
+		this.buffer = null;
+		this.segments = new FloatBuffer[0];
+		Memory.free(bytes);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.math.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Memory holding the points of a series as consecutive segments of float triplets.
+ * Segment i holds the points [i << shift, (i + 1) << shift).
+ */
+public interface Storage {
+
+	Type type();
+
+	int shift();
+
+	long capacity();
+
+	void ensureCapacity(long capacity, boolean exact);
+
+	int segmentCount();
+
+	FloatBuffer getSegment(int index);
+
+	/**
+	 * The returned array is never modified afterwards: growth replaces it with a longer copy, so it can be handed to other threads.
+	 *
+	 * @return The {@link #segmentCount()} segments.
+	 */
+	FloatBuffer[] segments();
+
+	/**
+	 * @return The native-order bytes of the segment, sharing its content.
+	 */
+	ByteBuffer getBytes(int index);
+
+	void release();
+
+	/**
+	 * @return The native memory held by all direct storages, in bytes.
+	 */
+	static long getDirectBytes() {
+		return Memory.directBytes.get();
+	}
+
+	/**
+	 * @return The size of all file mappings held by mapped storages, in bytes.
+	 */
+	static long getMappedBytes() {
+		return Memory.mappedBytes.get();
+	}
+
+	enum Type {
+		DIRECT("Mémoire"), MAPPED("Fichier");
+
+		public final String displayName;
+
+		Type(String displayName) {
+			this.displayName = displayName;
+		}
+
+		public Storage create() {
+			switch (this) {
+				case DIRECT:
+					return new DirectStorage();
+				case MAPPED:
+					return new MappedStorage();
+				default:
+					throw new IllegalStateException();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return this.displayName;
+		}
+	}
+}
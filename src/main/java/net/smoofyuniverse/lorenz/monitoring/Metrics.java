@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.monitoring;
+
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
+import net.smoofyuniverse.lorenz.util.Loop;
+import net.smoofyuniverse.lorenz.util.Updatable;
+import org.slf4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class Metrics implements MetricsMXBean {
+	private static final Logger logger = ApplicationLogger.get(Metrics.class);
+	public static final String NAME = "net.smoofyuniverse.lorenz:type=Metrics";
+	private static final long FRAME_SAMPLE_PERIOD = 1_000_000_000L;
+
+	private final FrameSource frames;
+	private final Loop processingLoop;
+	private long sampleTime, sampleFrames;
+	private double framesPerSecond;
+
+	public Metrics(FrameSource frames, Loop processingLoop) {
+		if (frames == null)
+			throw new IllegalArgumentException("frames");
+		if (processingLoop == null)
+			throw new IllegalArgumentException("processingLoop");
+
+		this.frames = frames;
+		this.processingLoop = processingLoop;
+		this.sampleTime = System.nanoTime();
+		this.sampleFrames = frames.getDrawnFrames();
+	}
+
+	/**
+	 * Registers this bean in the platform server, failures are only logged.
+	 */
+	public void register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NAME));
+		} catch (JMException e) {
+			logger.warn("Failed to register metrics", e);
+		}
+	}
+
+	@Override
+	public Map<String, Double> getStepsPerSecond() {
+		Map<String, Double> map = new LinkedHashMap<>();
+		for (Updatable u : this.processingLoop.updatables) {
+			if (u instanceof SolverSource) {
+				SolverSource s = (SolverSource) u;
+				map.merge(s.getName(), s.getStepsPerSecond(), Double::sum);
+			}
+		}
+		return map;
+	}
+
+	@Override
+	public double getTotalStepsPerSecond() {
+		double total = 0;
+		for (Updatable u : this.processingLoop.updatables) {
+			if (u instanceof SolverSource)
+				total += ((SolverSource) u).getStepsPerSecond();
+		}
+		return total;
+	}
+
+	@Override
+	public long getDirectBytes() {
+		return Storage.getDirectBytes();
+	}
+
+	@Override
+	public long getMappedBytes() {
+		return Storage.getMappedBytes();
+	}
+
+	/**
+	 * The render loop skips drawing when nothing changed, so its frequency is not the frame rate.
+	 * The rate is updated from the drawn frame counter when at least a second elapsed since the last sample.
+	 */
+	@Override
+	public synchronized double getFramesPerSecond() {
+		long now = System.nanoTime();
+		if (now - this.sampleTime >= FRAME_SAMPLE_PERIOD) {
+			long frames = this.frames.getDrawnFrames();
+			this.framesPerSecond = (frames - this.sampleFrames) * 1E9 / (now - this.sampleTime);
+			this.sampleTime = now;
+			this.sampleFrames = frames;
+		}
+		return this.framesPerSecond;
+	}
+}
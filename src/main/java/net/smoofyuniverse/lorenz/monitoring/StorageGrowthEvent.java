@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.monitoring;
+
+import jdk.jfr.*;
+
+@Name("net.smoofyuniverse.lorenz.StorageGrowth")
+@Label("Storage Growth")
+@Description("Allocation of new segments by a series, existing points are never copied")
+@Category({"Lorenz", "Storage"})
+@StackTrace(false)
+public final class StorageGrowthEvent extends Event {
+	@Label("Storage")
+	public String storage;
+
+	@Label("Previous Capacity")
+	@Description("In points")
+	public long previousCapacity;
+
+	@Label("Capacity")
+	@Description("In points")
+	public long capacity;
+
+	@Label("Bytes Allocated")
+	@DataAmount
+	public long bytesAllocated;
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -22,18 +22,45 @@
 
 package net.smoofyuniverse.lorenz.ui.fx;
 
+import javafx.application.Platform;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.ListChangeListener;
 import javafx.geometry.Insets;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
+import net.smoofyuniverse.common.app.State;
+import net.smoofyuniverse.common.fx.task.ObservableProgressListener;
+import net.smoofyuniverse.common.logger.ApplicationLogger;
 import net.smoofyuniverse.common.util.GridUtil;
+import net.smoofyuniverse.lorenz.math.BifurcationData;
+import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.ParameterSweep;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.TrajectoryCache;
 import net.smoofyuniverse.lorenz.ui.fx.config.LorenzConfig;
 import net.smoofyuniverse.lorenz.ui.fx.config.LorenzConfigList;
 import net.smoofyuniverse.lorenz.ui.gl.ScatterChart;
 import net.smoofyuniverse.lorenz.util.Loop;
+import org.slf4j.Logger;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 public class UserInterface extends GridPane {
+	private static final Logger logger = ApplicationLogger.get(UserInterface.class);
+
+	/**
+	 * Fraction of each processing tick shared between the configurations in adaptive mode.
+	 */
+	private static final double PROCESSING_SHARE = 0.75;
+	private static final double LYAPUNOV_SCALE = 20;
+	private static final long CACHE_MEMORY = Long.getLong("lorenz.cache.memory", 1L << 30), CACHE_DISK = Long.getLong("lorenz.cache.disk", 4L << 30);
+	private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("lorenz.cache.dir", System.getProperty("java.io.tmpdir") + "/lorenz-cache"));
 
 	public UserInterface(Loop processingLoop, ScatterChart chart) {
 		if (processingLoop == null)
@@ -41,9 +68,12 @@ public class UserInterface extends GridPane {
 		if (chart == null)
 			throw new IllegalArgumentException("chart");
 
-		Button add = new Button("Ajouter"), clear = new Button("Vider"), calculate = new Button("Calculer");
+		Button add = new Button("Ajouter"), clear = new Button("Vider"), calculate = new Button("Calculer"), bifurcation = new Button("Bifurcation"), lyapunov = new Button("Lyapunov");
 		LorenzConfigList list = new LorenzConfigList();
 
+		TrajectoryCache cache = new TrajectoryCache(CACHE_MEMORY, CACHE_DISK == 0 ? null : CACHE_DIRECTORY, CACHE_DISK);
+		State.SHUTDOWN.newListener(e -> cache.close(), 0).register();
+
 		list.getItems().addListener((ListChangeListener<LorenzConfig>) c -> {
 			while (c.next()) {
 				for (LorenzConfig cfg : c.getRemoved()) {
@@ -53,10 +83,17 @@ public class UserInterface extends GridPane {
 				}
 
 				for (LorenzConfig cfg : c.getAddedSubList()) {
+					cfg.cache = cache;
 					chart.data.add(cfg.series);
 					processingLoop.updatables.add(cfg);
 				}
 			}
+
+			// Configurations beyond the parallelism of the loop share the same threads
+			int rounds = (list.getItems().size() + processingLoop.getParallelism() - 1) / processingLoop.getParallelism();
+			long budget = (long) (processingLoop.getPrefPeriod() * PROCESSING_SHARE / Math.max(1, rounds));
+			for (LorenzConfig cfg : list.getItems())
+				cfg.budget = budget;
 		});
 
 		add.setOnAction(e -> list.getItems().add(new LorenzConfig()));
@@ -66,18 +103,81 @@ public class UserInterface extends GridPane {
 				cfg.start();
 		});
 
+		// The sweep has its own pool so that it neither delays nor is delayed by other users of the common pool
+		ForkJoinPool sweepPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		State.SHUTDOWN.newListener(e -> sweepPool.shutdownNow(), 0).register();
+
+		// Only one sweep runs at a time, both buttons are disabled meanwhile
+		BooleanProperty sweeping = new SimpleBooleanProperty();
+		bifurcation.disableProperty().bind(sweeping);
+		lyapunov.disableProperty().bind(sweeping);
+
+		ProgressBar progress = new ProgressBar();
+		progress.setMaxWidth(Double.MAX_VALUE);
+		progress.visibleProperty().bind(sweeping);
+		progress.managedProperty().bind(progress.visibleProperty());
+
+		Series bifurcationSeries = new Series();
+		bifurcationSeries.connect = false;
+		bifurcation.setOnAction(e -> sweep(chart, bifurcationSeries, sweeping, progress, sweepPool, "Failed to compute the bifurcation diagram", listener -> {
+			ParameterSweep sweep = ParameterSweep.grid(new double[]{Function.DEFAULT_SIGMA}, ParameterSweep.range(0, 250, 2000), new double[]{Function.DEFAULT_BETA});
+			BifurcationData data = sweep.run(sweepPool, listener.limit(sweep.size()));
+			data.toSeries(data::getRho, bifurcationSeries);
+		}));
+
+		// The largest exponent along rho, scaled to be readable next to the bifurcation diagram
+		Series lyapunovSeries = new Series();
+		lyapunovSeries.setColor(1, 0.6f, 0.2f, 1);
+		lyapunov.setOnAction(e -> sweep(chart, lyapunovSeries, sweeping, progress, sweepPool, "Failed to compute the Lyapunov exponents", listener -> {
+			double[] rho = ParameterSweep.range(0, 250, 500);
+			ParameterSweep sweep = ParameterSweep.grid(new double[]{Function.DEFAULT_SIGMA}, rho, new double[]{Function.DEFAULT_BETA});
+			double[] exponents = sweep.lyapunov(sweepPool, listener.limit(sweep.size()));
+			lyapunovSeries.clear();
+			for (int i = 0; i < rho.length; i++)
+				lyapunovSeries.add((float) rho[i], (float) (exponents[i * 3] * LYAPUNOV_SCALE), 0);
+			lyapunovSeries.commit();
+		}));
+
 		add.setMaxWidth(Double.MAX_VALUE);
 		clear.setMaxWidth(Double.MAX_VALUE);
 		calculate.setMaxWidth(Double.MAX_VALUE);
+		bifurcation.setMaxWidth(Double.MAX_VALUE);
+		lyapunov.setMaxWidth(Double.MAX_VALUE);
 
-		add(list, 0, 0, 3, 1);
-		addRow(1, add, clear, calculate);
+		add(list, 0, 0, 5, 1);
+		addRow(1, add, clear, calculate, bifurcation, lyapunov);
+		add(progress, 0, 2, 5, 1);
 
 		setVgap(5);
 		setHgap(5);
 		setPadding(new Insets(8));
 
-		getColumnConstraints().addAll(GridUtil.column(33), GridUtil.column(33), GridUtil.column(33));
-		getRowConstraints().addAll(GridUtil.row(Priority.ALWAYS), GridUtil.row());
+		getColumnConstraints().addAll(GridUtil.column(20), GridUtil.column(20), GridUtil.column(20), GridUtil.column(20), GridUtil.column(20));
+		getRowConstraints().addAll(GridUtil.row(Priority.ALWAYS), GridUtil.row(), GridUtil.row());
+	}
+
+	/**
+	 * Computes a series on the sweep pool and adds it to the chart, or removes it if already shown.
+	 */
+	private static void sweep(ScatterChart chart, Series series, BooleanProperty sweeping, ProgressBar progress, ForkJoinPool pool, String error, Consumer<ObservableProgressListener> job) {
+		if (chart.data.remove(series))
+			return;
+
+		ObservableProgressListener listener = new ObservableProgressListener();
+		progress.progressProperty().bind(listener.progressProperty());
+		sweeping.set(true);
+		pool.execute(() -> {
+			try {
+				job.accept(listener);
+				chart.data.add(series);
+			} catch (Throwable t) {
+				logger.error(error, t);
+			} finally {
+				Platform.runLater(() -> {
+					progress.progressProperty().unbind();
+					sweeping.set(false);
+				});
+			}
+		});
 	}
 }
\ No newline at end of file
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -22,35 +22,375 @@
 
 package net.smoofyuniverse.lorenz.ui.fx.config;
 
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import net.smoofyuniverse.common.fx.task.ObservableProgressListener;
+import net.smoofyuniverse.common.logger.ApplicationLogger;
 import net.smoofyuniverse.common.task.IncrementalListener;
+import net.smoofyuniverse.lorenz.math.DenseOutput;
 import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Integrator;
 import net.smoofyuniverse.lorenz.math.RungeKutta4;
 import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.Timeline;
+import net.smoofyuniverse.lorenz.math.TrajectoryCache;
+import net.smoofyuniverse.lorenz.math.expression.ExpressionSystem;
+import net.smoofyuniverse.lorenz.math.storage.QuantizedPoints;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
 import net.smoofyuniverse.lorenz.math.vector.Vector3d;
+import net.smoofyuniverse.lorenz.monitoring.SolverSource;
 import net.smoofyuniverse.lorenz.util.Updatable;
+import org.slf4j.Logger;
 
-public final class LorenzConfig implements Updatable {
-	public double sigma = Function.DEFAULT_SIGMA, rho = Function.DEFAULT_RHO, beta = Function.DEFAULT_BETA, x0 = 1, y0 = 1, z0 = 1, h = 0.001;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class LorenzConfig implements Updatable, SolverSource {
+	private static final Logger logger = ApplicationLogger.get(LorenzConfig.class);
+	private static final int MIN_ITERATIONS = 16, MAX_ITERATIONS = 1 << 24;
+	private static final long REPORT_PERIOD = 1_000_000_000L;
+	private static final long MAX_WINDOW = 1L << 24, MAX_REPLAY = 1L << 20;
+	private static final AtomicInteger COUNT = new AtomicInteger();
+
+	public double sigma = Function.DEFAULT_SIGMA, rho = Function.DEFAULT_RHO, beta = Function.DEFAULT_BETA, x0 = 1, y0 = 1, z0 = 1, h = 0.001, rtol = 1E-6, atol = 1E-9;
 	public int points = 100000, speed = 100;
+	public Integrator.Type integrator = Integrator.Type.RUNGE_KUTTA_4;
+	public Storage.Type storage = Storage.Type.DIRECT;
+	public boolean streaming, adaptive;
+	/**
+	 * Records checkpoints instead of points, only the time window is computed again and stored.
+	 * Requires RK4 and is ignored in streaming mode.
+	 */
+	public boolean timeline;
+	/**
+	 * Number of steps between two stored states, intermediate states are interpolated when rendering.
+	 * Requires RK4 and is ignored in streaming and timeline modes.
+	 */
+	public int stride = 1;
+	/**
+	 * Quantizes the points once the trajectory is complete, see {@link Series#compact()}.
+	 * Ignored in streaming and timeline modes.
+	 */
+	public boolean compact;
+	/**
+	 * Wall-clock time in nanoseconds given to the solver at each update in adaptive mode.
+	 */
+	public volatile long budget = 20_000_000L;
+	public String equations;
 
+	public final String name = "Configuration " + COUNT.incrementAndGet();
 	public final ObservableProgressListener progressListener = new ObservableProgressListener();
 	public final Series series = new Series();
+	public TrajectoryCache cache;
 
-	private IncrementalListener listener;
-	private Updatable solver;
+	private final ReadOnlyDoubleWrapper stepsPerSecond = new ReadOnlyDoubleWrapper();
 
-	public void start() {
-		stop();
+	private volatile IncrementalListener listener;
+	private Integrator solver;
+	private TrajectoryCache.Key key;
+	private int request;
+	private int iterations;
+	private double stepCost;
+	private long reportTime, reportSteps;
+	private volatile double lastStepsPerSecond;
+
+	private volatile double[] window = {0, 0};
+	private Timeline checkpoints;
+	private double[] replayWindow;
+	private long replayEnd, replayPosition;
+	private Vector3d replayState;
+
+	public LorenzConfig() {
+		this.series.setLevelOfDetail(true);
+	}
+
+	public Function createFunction() {
+		if (this.equations == null || this.equations.isBlank())
+			return Function.lorenz(this.sigma, this.rho, this.beta);
+		return ExpressionSystem.parse(this.equations).toFunction();
+	}
+
+	/**
+	 * @return The key of the trajectory described by this configuration, ignoring streaming.
+	 */
+	public TrajectoryCache.Key createKey() {
+		return new TrajectoryCache.Key(this.equations, this.sigma, this.rho, this.beta, this.x0, this.y0, this.z0, this.h, this.rtol, this.atol, this.points, this.integrator);
+	}
+
+	private boolean usesTimeline() {
+		return this.timeline && !this.streaming && this.integrator == Integrator.Type.RUNGE_KUTTA_4;
+	}
+
+	private boolean usesDenseOutput() {
+		return this.stride > 1 && !this.streaming && this.integrator == Integrator.Type.RUNGE_KUTTA_4 && !usesTimeline();
+	}
+
+	/**
+	 * @return The key under which the trajectory is cached, or null if it is not.
+	 */
+	private TrajectoryCache.Key cacheKey() {
+		return this.streaming || usesTimeline() || usesDenseOutput() ? null : createKey();
+	}
+
+	public synchronized void start() {
+		TrajectoryCache.Key key = cacheKey();
+		if (key != null && key.equals(this.key) && this.series.size() == this.points && this.series.getStorage().type() == this.storage)
+			return; // Already computed
+
+		if (key != null && this.key != null && this.solver != null && key.points > this.key.points && this.series.getQuantized() == null
+				&& key.withPoints(this.key.points).equals(this.key) && this.series.getStorage().type() == this.storage) {
+			extend(key);
+			return;
+		}
+
+		stop0();
+
+		Function function;
+		try {
+			function = createFunction();
+		} catch (IllegalArgumentException e) {
+			logger.error("Invalid equations: {}", e.getMessage());
+			return;
+		}
+
+		if (key != null && this.cache != null) {
+			// Copies, disk reads and the levels of detail are slow so the trajectory is restored on the thread of the cache
+			int request = this.request;
+			this.cache.takeLater(key, this.storage, t -> restore(request, key, function, t));
+			return;
+		}
+
+		compute(function, key);
+	}
+
+	private void restore(int request, TrajectoryCache.Key key, Function function, TrajectoryCache.Trajectory trajectory) {
+		if (!restore0(request, key, function, trajectory) && trajectory != null)
+			this.cache.put(key, trajectory.storage, trajectory.size);
+	}
+
+	/**
+	 * Attaches the restored trajectory, or computes it if it was not found.
+	 *
+	 * @return Whether the request is still current, the configuration has not been started nor stopped meanwhile.
+	 */
+	private synchronized boolean restore0(int request, TrajectoryCache.Key key, Function function, TrajectoryCache.Trajectory trajectory) {
+		if (request != this.request)
+			return false;
+
+		if (trajectory != null) {
+			try {
+				this.series.attach(trajectory.storage, trajectory.size);
+				this.key = key;
+				this.progressListener.setCancelled(false);
+				this.progressListener.limit(key.points).increment(key.points);
+				return true;
+			} catch (IllegalArgumentException | IllegalStateException e) {
+				trajectory.storage.release();
+				logger.error("Failed to restore {} points: {}", trajectory.size, e.getMessage());
+			}
+		}
+
+		// The parameters may have changed meanwhile
+		if (key.equals(cacheKey()))
+			compute(function, key);
+		else
+			start();
+		return true;
+	}
+
+	private void compute(Function function, TrajectoryCache.Key key) {
+		if (this.timeline && !usesTimeline())
+			logger.warn("Timeline requires RK4 and is not available in streaming mode");
+		if (this.stride > 1 && !usesDenseOutput() && !usesTimeline())
+			logger.warn("Sampling requires RK4 and is not available in streaming mode");
+
+		try {
+			if (this.streaming)
+				this.series.setRing(this.points);
+			else
+				this.series.setStorage(this.storage);
+			this.series.setDenseOutput(usesDenseOutput() ? new DenseOutput(this.stride, this.h, this.storage) : null);
+			if (usesDenseOutput())
+				this.series.ensureCapacity(this.points / this.stride, true);
+			else if (!usesTimeline())
+				this.series.ensureCapacity(this.points, true);
+		} catch (IllegalArgumentException | UncheckedIOException e) {
+			logger.error("Failed to allocate {} points: {}", this.points, e.getMessage());
+			return;
+		}
 
 		this.progressListener.setCancelled(false);
-		this.listener = this.progressListener.limit(this.points);
-		this.series.ensureCapacity(this.points, true);
-		this.solver = new RungeKutta4(new Vector3d(this.x0, this.y0, this.z0), this.h, Function.lorenz(this.sigma, this.rho, this.beta), this.series, this.listener, this.speed);
+		Vector3d v0 = new Vector3d(this.x0, this.y0, this.z0);
+		if (usesTimeline()) {
+			// Points are computed again from checkpoints for the time window only
+			this.listener = this.progressListener.limit(this.points);
+			RungeKutta4 solver = new RungeKutta4(v0, this.h, function, null, this.listener, this.points, this.speed);
+			this.checkpoints = new Timeline(v0, this.h, function);
+			solver.setTimeline(this.checkpoints);
+			this.solver = solver;
+			this.replayWindow = null;
+		} else if (this.streaming) {
+			// Runs until stopped, the series keeps the last points
+			this.listener = this.progressListener.limit(Long.MAX_VALUE);
+			this.solver = Integrator.create(this.integrator, v0, this.h, this.rtol, this.atol, function, this.series, this.listener, Long.MAX_VALUE, this.speed);
+		} else {
+			this.listener = this.progressListener.limit(this.points);
+			this.solver = Integrator.create(this.integrator, v0, this.h, this.rtol, this.atol, function, this.series, this.listener, this.points, this.speed);
+		}
 		this.solver.init();
+		this.key = key;
+		applyWindow();
+
+		this.iterations = this.speed;
+		this.stepCost = 0;
+	}
+
+	/**
+	 * Restricts the display to the points between the given times.
+	 * The window is disabled when the end is not after the start.
+	 */
+	public void setWindow(double start, double end) {
+		double[] w = this.window;
+		// The replay compares windows by identity
+		if (start == w[0] && end == w[1])
+			return;
+		this.window = new double[]{start, end};
+		applyWindow();
+	}
+
+	public double getWindowStart() {
+		return this.window[0];
+	}
+
+	public double getWindowEnd() {
+		return this.window[1];
+	}
+
+	private void applyWindow() {
+		double[] w = this.window;
+		// In timeline mode, the series only contains the window, see replay()
+		if (this.checkpoints != null || w[1] <= w[0] || this.h <= 0) {
+			this.series.clearWindow();
+			return;
+		}
+
+		// The point at index i is the state after i + 1 steps, or i + 1 strides with a dense output
+		DenseOutput dense = this.series.getDenseOutput();
+		double interval = dense == null ? this.h : dense.getInterval();
+		long first = firstStep(w, interval);
+		this.series.setWindow(first - 1, Math.max(first - 1, lastStep(w, interval)));
+	}
+
+	/**
+	 * @return The first step, at least 1, whose state is in the window.
+	 */
+	private static long firstStep(double[] window, double interval) {
+		return Math.max(1, (long) Math.ceil(window[0] / interval));
+	}
+
+	/**
+	 * @return The last step whose state is in the window.
+	 */
+	private static long lastStep(double[] window, double interval) {
+		return (long) Math.floor(window[1] / interval);
+	}
+
+	/**
+	 * Integrates again the points of the time window from the checkpoints, as far as the solver went.
+	 * These are the same points as in the full series, the initial state is not included.
+	 *
+	 * @param max The maximum number of points to add.
+	 * @return The number of steps integrated, including those needed to reach the window.
+	 */
+	private long replay(long max) {
+		double[] w = this.window;
+		if (w != this.replayWindow) {
+			this.replayWindow = w;
+			this.series.clear();
+			this.replayState = null;
+
+			double h = this.checkpoints.getStep();
+			if (w[1] <= w[0] || h <= 0) {
+				this.replayPosition = this.replayEnd = 0;
+			} else {
+				this.replayPosition = firstStep(w, h);
+				this.replayEnd = Math.min(Math.max(this.replayPosition, lastStep(w, h) + 1), this.replayPosition + MAX_WINDOW);
+				try {
+					this.series.ensureCapacity(this.replayEnd - this.replayPosition, true);
+				} catch (IllegalArgumentException | UncheckedIOException e) {
+					logger.error("Failed to allocate {} points: {}", this.replayEnd - this.replayPosition, e.getMessage());
+					this.replayEnd = this.replayPosition;
+				}
+			}
+		}
+
+		long end = Math.min(this.replayEnd, this.checkpoints.getSteps() + 1);
+		if (this.replayPosition >= end)
+			return 0;
+
+		long n = Math.min(end - this.replayPosition, max), steps = n;
+		if (this.replayState == null) {
+			steps += this.replayPosition % this.checkpoints.getInterval();
+			this.replayState = this.checkpoints.seek(this.replayPosition);
+			this.series.add(this.replayState);
+			this.replayPosition++;
+			n--;
+		}
+		this.replayState = this.checkpoints.replay(this.replayState, n, this.series);
+		this.replayPosition += n;
+		this.series.commit();
+		return steps;
+	}
+
+	private boolean isComplete() {
+		DenseOutput dense = this.series.getDenseOutput();
+		long size = this.series.size();
+		return size != 0 && size >= (dense == null ? this.points : this.points / dense.getStride());
+	}
+
+	private void compact() {
+		try {
+			this.series.compact();
+		} catch (IllegalArgumentException e) {
+			logger.error("Failed to compact {} points: {}", this.series.size(), e.getMessage());
+			return;
+		}
+
+		QuantizedPoints q = this.series.getQuantized();
+		logger.info("Compacted {} points: {} times smaller, maximum error {}", q.size(), String.format(Locale.ROOT, "%.2f", q.getCompressionRatio()), q.getMaxError());
+	}
+
+	/**
+	 * Continues the current trajectory up to the new number of points.
+	 */
+	private void extend(TrajectoryCache.Key key) {
+		try {
+			this.series.ensureCapacity(key.points, true);
+		} catch (IllegalArgumentException | UncheckedIOException e) {
+			logger.error("Failed to allocate {} points: {}", key.points, e.getMessage());
+			return;
+		}
+
+		this.progressListener.setCancelled(false);
+		this.listener = this.progressListener.limit(key.points);
+		this.listener.increment(this.series.size());
+		this.solver.extend(key.points, this.listener);
+		this.key = key;
 	}
 
 	public void stop() {
+		// Cancels outside the lock so that a running update returns early
+		IncrementalListener l = this.listener;
+		if (l != null)
+			l.cancel();
+		stop0();
+	}
+
+	private synchronized void stop0() {
+		// Pending restorations are discarded
+		this.request++;
 		if (this.listener != null) {
 			this.listener.cancel();
 			this.listener = null;
@@ -59,13 +399,86 @@ public final class LorenzConfig implements Updatable {
 			this.solver.dispose();
 			this.solver = null;
 		}
-		this.series.clear();
+		// Only complete trajectories are kept
+		if (this.cache != null && this.key != null && this.key.points > 0 && this.series.size() == this.key.points && this.series.getQuantized() == null)
+			this.cache.putLater(this.key, this.series.detach(), this.key.points);
+		this.key = null;
+		this.checkpoints = null;
+		this.replayState = null;
+		this.series.release();
+	}
+
+	/**
+	 * @return The number of steps computed per second, measured over the last second.
+	 */
+	public ReadOnlyDoubleProperty stepsPerSecondProperty() {
+		return this.stepsPerSecond.getReadOnlyProperty();
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return The last value of {@link #stepsPerSecondProperty()}, can be read from any thread.
+	 */
+	@Override
+	public double getStepsPerSecond() {
+		return this.lastStepsPerSecond;
 	}
 
 	@Override
-	public void update() {
-		if (this.solver != null)
+	public synchronized void update() {
+		long done = 0, end;
+		if (this.solver == null) {
+			end = System.nanoTime();
+		} else {
+			long start = System.nanoTime(), replayed = 0;
+			// The replay is counted against the budget, the solver gets the remaining steps
+			if (this.checkpoints != null)
+				replayed = replay(this.adaptive ? this.iterations : MAX_REPLAY);
+
+			if (this.adaptive)
+				this.solver.setIterationsPerUpdate((int) Math.max(MIN_ITERATIONS, this.iterations - replayed));
+			else if (this.iterations != this.speed) {
+				this.iterations = this.speed;
+				this.solver.setIterationsPerUpdate(this.speed);
+			}
+
+			long steps = this.solver.getSteps();
 			this.solver.update();
+			end = System.nanoTime();
+			done = this.solver.getSteps() - steps;
+
+			if (this.adaptive && done + replayed > 0)
+				adapt((end - start) / (double) (done + replayed));
+
+			if (this.checkpoints == null && this.compact && this.series.getRing() == 0 && this.series.getQuantized() == null && isComplete())
+				compact();
+		}
+
+		this.reportSteps += done;
+		if (end - this.reportTime >= REPORT_PERIOD) {
+			double value = this.reportSteps * 1E9 / (end - this.reportTime);
+			this.reportTime = end;
+			this.reportSteps = 0;
+			this.lastStepsPerSecond = value;
+			Platform.runLater(() -> this.stepsPerSecond.set(value));
+		}
+	}
+
+	/**
+	 * Tunes the number of iterations so that the next update fills the budget.
+	 */
+	private void adapt(double cost) {
+		// Smoothed to absorb GC pauses and JIT compilation
+		this.stepCost = this.stepCost == 0 ? cost : 0.8 * this.stepCost + 0.2 * cost;
+
+		double target = this.budget / this.stepCost;
+		// Growth is limited since the cost of the first steps is not representative
+		target = Math.min(target, this.iterations * 2D);
+		this.iterations = (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, target));
 	}
 
 	@Override
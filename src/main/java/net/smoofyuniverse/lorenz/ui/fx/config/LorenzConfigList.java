@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -22,14 +22,19 @@
 
 package net.smoofyuniverse.lorenz.ui.fx.config;
 
+import javafx.beans.binding.Bindings;
 import javafx.scene.control.*;
 import javafx.scene.layout.GridPane;
+import javafx.scene.paint.Color;
 import net.smoofyuniverse.common.fx.control.EmptySelectionModel;
 import net.smoofyuniverse.common.fx.field.DoubleField;
 import net.smoofyuniverse.common.fx.field.IntegerField;
 import net.smoofyuniverse.common.util.GridUtil;
 import net.smoofyuniverse.lorenz.math.Function;
+import net.smoofyuniverse.lorenz.math.Integrator;
 import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.expression.ExpressionSystem;
+import net.smoofyuniverse.lorenz.math.storage.Storage;
 
 public class LorenzConfigList extends ListView<LorenzConfig> {
 
@@ -42,16 +47,28 @@ public class LorenzConfigList extends ListView<LorenzConfig> {
 		private final ColorPicker color = new ColorPicker();
 		private final DoubleField sigma = new DoubleField(-10000, 10000, Function.DEFAULT_SIGMA), rho = new DoubleField(-10000, 10000, Function.DEFAULT_RHO), beta = new DoubleField(-10000, 10000, Function.DEFAULT_BETA),
 				x0 = new DoubleField(-10000, 10000, 0), y0 = new DoubleField(-10000, 10000, 0), z0 = new DoubleField(-10000, 10000, 0), h = new DoubleField(-10, 10, 0.001);
-		private final IntegerField points = new IntegerField(0, 10_000_000), speed = new IntegerField(1, 10000);
+		private final DoubleField rtol = new DoubleField(0, 1, 1E-6), atol = new DoubleField(0, 1, 1E-9);
+		private final IntegerField points = new IntegerField(0, Integer.MAX_VALUE), speed = new IntegerField(1, 10000), stride = new IntegerField(1, 1 << 16);
+		private final ChoiceBox<Integrator.Type> integrator = new ChoiceBox<>();
+		private final ChoiceBox<Storage.Type> storage = new ChoiceBox<>();
+		private final ChoiceBox<Series.ColorMode> colorMode = new ChoiceBox<>();
+		private final ComboBox<String> equations = new ComboBox<>();
 		private final Button connect = new Button();
+		private final CheckBox streaming = new CheckBox("Continu"), adaptive = new CheckBox("Vitesse auto"), timeline = new CheckBox("Chronologie"), compact = new CheckBox("Compacter");
+		private final DoubleField windowStart = new DoubleField(0, Double.MAX_VALUE, 0), windowEnd = new DoubleField(0, Double.MAX_VALUE, 0);
+		private final Label stepsPerSecond = new Label();
 		private final ProgressBar progressBar = new ProgressBar();
+		private boolean updating;
 
 		private final GridPane pane = new GridPane();
 
 		public ConfigCell() {
 			setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
 
-			this.color.valueProperty().addListener((v, oldV, newV) -> getItem().series.setColor(newV));
+			this.color.valueProperty().addListener((v, oldV, newV) -> {
+				Color c = newV == null ? Color.WHITE : newV;
+				getItem().series.setColor((float) c.getRed(), (float) c.getGreen(), (float) c.getBlue(), (float) c.getOpacity());
+			});
 
 			this.sigma.valueProperty().addListener((v, oldV, newV) -> getItem().sigma = newV.doubleValue());
 			this.rho.valueProperty().addListener((v, oldV, newV) -> getItem().rho = newV.doubleValue());
@@ -61,8 +78,30 @@ public class LorenzConfigList extends ListView<LorenzConfig> {
 			this.z0.valueProperty().addListener((v, oldV, newV) -> getItem().z0 = newV.doubleValue());
 			this.h.valueProperty().addListener((v, oldV, newV) -> getItem().h = newV.doubleValue());
 
+			this.rtol.valueProperty().addListener((v, oldV, newV) -> getItem().rtol = newV.doubleValue());
+			this.atol.valueProperty().addListener((v, oldV, newV) -> getItem().atol = newV.doubleValue());
+			this.integrator.valueProperty().addListener((v, oldV, newV) -> getItem().integrator = newV);
+			this.equations.valueProperty().addListener((v, oldV, newV) -> getItem().equations = newV);
+			this.storage.valueProperty().addListener((v, oldV, newV) -> getItem().storage = newV);
+			this.colorMode.valueProperty().addListener((v, oldV, newV) -> getItem().series.colorMode = newV);
+			this.streaming.selectedProperty().addListener((v, oldV, newV) -> getItem().streaming = newV);
+			this.adaptive.selectedProperty().addListener((v, oldV, newV) -> getItem().adaptive = newV);
+			this.speed.disableProperty().bind(this.adaptive.selectedProperty());
+			this.timeline.selectedProperty().addListener((v, oldV, newV) -> getItem().timeline = newV);
+			// Skipped while a reused cell shows another item, the window would be set with one bound of each
+			this.windowStart.valueProperty().addListener((v, oldV, newV) -> {
+				if (!this.updating)
+					getItem().setWindow(newV.doubleValue(), this.windowEnd.getValue());
+			});
+			this.windowEnd.valueProperty().addListener((v, oldV, newV) -> {
+				if (!this.updating)
+					getItem().setWindow(this.windowStart.getValue(), newV.doubleValue());
+			});
+
 			this.points.valueProperty().addListener((v, oldV, newV) -> getItem().points = newV.intValue());
 			this.speed.valueProperty().addListener((v, oldV, newV) -> getItem().speed = newV.intValue());
+			this.stride.valueProperty().addListener((v, oldV, newV) -> getItem().stride = newV.intValue());
+			this.compact.selectedProperty().addListener((v, oldV, newV) -> getItem().compact = newV);
 
 			this.connect.setOnAction(e -> {
 				Series s = getItem().series;
@@ -85,24 +124,55 @@ public class LorenzConfigList extends ListView<LorenzConfig> {
 			this.color.setMaxWidth(Double.MAX_VALUE);
 			this.color.setPrefWidth(100);
 
+			this.integrator.getItems().addAll(Integrator.Type.values());
+			this.integrator.setMaxWidth(Double.MAX_VALUE);
+			this.equations.getItems().addAll("", ExpressionSystem.ROSSLER, ExpressionSystem.CHEN, ExpressionSystem.THOMAS, ExpressionSystem.HALVORSEN);
+			this.equations.setEditable(true);
+			this.equations.setPromptText("Lorenz (σ, ρ, β)");
+			this.equations.setMaxWidth(Double.MAX_VALUE);
+			this.storage.getItems().addAll(Storage.Type.values());
+			this.storage.setMaxWidth(Double.MAX_VALUE);
+			this.colorMode.getItems().addAll(Series.ColorMode.values());
+			this.colorMode.setMaxWidth(Double.MAX_VALUE);
 			this.progressBar.setMaxWidth(Double.MAX_VALUE);
 
 			this.pane.add(new Label("Couleur:"), 0, 0);
 			this.pane.add(this.color, 1, 0);
 			this.pane.add(this.connect, 3, 0);
+			this.pane.add(this.streaming, 4, 0);
 			this.pane.add(remove, 5, 0);
 
 			this.pane.addRow(1, new Label("Pas:"), this.h, new Label("Points:"), this.points, new Label("Vitesse:"), this.speed);
 			this.pane.addRow(2, new Label("σ:"), this.sigma, new Label("ρ:"), this.rho, new Label("β:"), this.beta);
 			this.pane.addRow(3, new Label("x0:"), this.x0, new Label("y0:"), this.y0, new Label("z0:"), this.z0);
 
-			this.pane.add(this.progressBar, 0, 4, 6, 1);
+			this.pane.addRow(4, new Label("Méthode:"), this.integrator, new Label("rtol:"), this.rtol, new Label("atol:"), this.atol);
+
+			this.pane.add(new Label("Système:"), 0, 5);
+			this.pane.add(this.equations, 1, 5, 3, 1);
+			this.pane.add(new Label("Stockage:"), 4, 5);
+			this.pane.add(this.storage, 5, 5);
+
+			this.pane.add(new Label("Coloration:"), 0, 6);
+			this.pane.add(this.colorMode, 1, 6);
+			this.pane.add(new Label("Débit:"), 2, 6);
+			this.pane.add(this.stepsPerSecond, 3, 6);
+			this.pane.add(this.adaptive, 4, 6, 2, 1);
+
+			this.pane.add(this.timeline, 0, 7, 2, 1);
+			this.pane.addRow(7, new Label("Début:"), this.windowStart, new Label("Fin:"), this.windowEnd);
+
+			this.pane.add(new Label("Échantillonnage:"), 0, 8);
+			this.pane.add(this.stride, 1, 8);
+			this.pane.add(this.compact, 2, 8, 2, 1);
+
+			this.pane.add(this.progressBar, 0, 9, 6, 1);
 
 			this.pane.setVgap(5);
 			this.pane.setHgap(5);
 
 			this.pane.getColumnConstraints().addAll(GridUtil.column(10), GridUtil.column(30), GridUtil.column(10), GridUtil.column(30), GridUtil.column(10), GridUtil.column(30));
-			this.pane.getRowConstraints().addAll(GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row());
+			this.pane.getRowConstraints().addAll(GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row(), GridUtil.row());
 		}
 
 		@Override
@@ -111,13 +181,15 @@ public class LorenzConfigList extends ListView<LorenzConfig> {
 
 			// Unbind previous value
 			this.progressBar.progressProperty().unbind();
+			this.stepsPerSecond.textProperty().unbind();
 
 			if (empty || item == null) {
 				setGraphic(null);
 			} else {
 				// Update content
 				this.connect.setText(item.series.connect ? "Déconnecter" : "Connecter");
-				this.color.setValue(item.series.getColor());
+				Series s = item.series;
+				this.color.setValue(Color.color(s.getRed(), s.getGreen(), s.getBlue(), s.getOpacity()));
 				this.sigma.setValue(item.sigma);
 				this.rho.setValue(item.rho);
 				this.beta.setValue(item.beta);
@@ -125,9 +197,25 @@ public class LorenzConfigList extends ListView<LorenzConfig> {
 				this.y0.setValue(item.y0);
 				this.z0.setValue(item.z0);
 				this.h.setValue(item.h);
+				this.rtol.setValue(item.rtol);
+				this.atol.setValue(item.atol);
+				this.integrator.setValue(item.integrator);
+				this.equations.setValue(item.equations);
+				this.storage.setValue(item.storage);
+				this.colorMode.setValue(s.colorMode);
+				this.streaming.setSelected(item.streaming);
+				this.adaptive.setSelected(item.adaptive);
+				this.timeline.setSelected(item.timeline);
+				this.updating = true;
+				this.windowStart.setValue(item.getWindowStart());
+				this.windowEnd.setValue(item.getWindowEnd());
+				this.updating = false;
 				this.points.setValue(item.points);
 				this.speed.setValue(item.speed);
+				this.stride.setValue(item.stride);
+				this.compact.setSelected(item.compact);
 				this.progressBar.progressProperty().bind(item.progressListener.progressProperty());
+				this.stepsPerSecond.textProperty().bind(Bindings.format("%,.0f pas/s", item.stepsPerSecondProperty()));
 
 				setGraphic(this.pane);
 			}
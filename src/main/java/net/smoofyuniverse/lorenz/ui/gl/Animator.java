@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -23,13 +23,65 @@
 package net.smoofyuniverse.lorenz.ui.gl;
 
 import com.jogamp.opengl.GLAutoDrawable;
+import net.smoofyuniverse.lorenz.monitoring.FrameSource;
 import net.smoofyuniverse.lorenz.util.Updatable;
 
-public class Animator implements Updatable {
+/**
+ * Redraws the scene only when the camera, the series or the overlay changed,
+ * or when the optional minimum refresh period elapsed.
+ */
+public class Animator implements Updatable, FrameSource {
 	public final GLAutoDrawable drawable;
+	private final Camera camera;
+	private final ScatterChart chart;
+	private final Controller controller;
+
+	private volatile boolean dirty = true;
+	private long minPeriod, lastDraw;
+	private int cameraVersion;
+	private long chartState;
+	private boolean displayHelp, displayDebug;
+	private volatile long drawn, skipped;
+
+	public Animator(GLAutoDrawable drawable, Camera camera, ScatterChart chart, Controller controller) {
+		if (drawable == null)
+			throw new IllegalArgumentException("drawable");
+		if (camera == null)
+			throw new IllegalArgumentException("camera");
+		if (chart == null)
+			throw new IllegalArgumentException("chart");
+		if (controller == null)
+			throw new IllegalArgumentException("controller");
 
-	public Animator(GLAutoDrawable drawable) {
 		this.drawable = drawable;
+		this.camera = camera;
+		this.chart = chart;
+		this.controller = controller;
+	}
+
+	/**
+	 * Forces the next frame to be drawn, for example when the window must be repainted.
+	 */
+	public void markDirty() {
+		this.dirty = true;
+	}
+
+	/**
+	 * @param f The minimum refresh frequency, or 0 to only redraw on changes.
+	 */
+	public void setMinFrequency(double f) {
+		if (f < 0)
+			throw new IllegalArgumentException();
+		this.minPeriod = f == 0 ? 0 : (long) (1E9 / f);
+	}
+
+	@Override
+	public long getDrawnFrames() {
+		return this.drawn;
+	}
+
+	public long getSkippedFrames() {
+		return this.skipped;
 	}
 
 	@Override
@@ -39,7 +91,29 @@ public class Animator implements Updatable {
 
 	@Override
 	public void update() {
+		long now = System.nanoTime();
+		int cameraVersion = this.camera.getVersion();
+		long chartState = this.chart.getState();
+		boolean displayHelp = this.controller.displayHelp, displayDebug = this.controller.displayDebug;
+
+		// The debug overlay shows live values
+		boolean changed = this.dirty || displayDebug || cameraVersion != this.cameraVersion || chartState != this.chartState
+				|| displayHelp != this.displayHelp || displayDebug != this.displayDebug;
+
+		if (!changed && (this.minPeriod == 0 || now - this.lastDraw < this.minPeriod)) {
+			this.skipped++;
+			return;
+		}
+
+		this.dirty = false;
+		this.cameraVersion = cameraVersion;
+		this.chartState = chartState;
+		this.displayHelp = displayHelp;
+		this.displayDebug = displayDebug;
+		this.lastDraw = now;
+
 		this.drawable.display();
+		this.drawn++;
 	}
 
 	@Override
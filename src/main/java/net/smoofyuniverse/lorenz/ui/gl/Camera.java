@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -27,12 +27,16 @@ import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.math.FloatUtil;
 import net.smoofyuniverse.lorenz.math.vector.Vector3f;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public final class Camera {
 	public static final float MIN_FOV = 1, MAX_FOV = 80, DEFAULT_FOV = 50;
 
 	private int width = 1, height = 1;
 	private float fov = DEFAULT_FOV;
 
+	private final AtomicInteger version = new AtomicInteger();
+
 	private float posX, posY, posZ;
 	private final float[] left = {-1, 0, 0};
 	private final float[] up = {0, 1, 0};
@@ -43,16 +47,46 @@ public final class Camera {
 		glu.gluLookAt(this.posX, this.posY, this.posZ, this.posX + this.forward[0], this.posY + this.forward[1], this.posZ + this.forward[2], this.up[0], this.up[1], this.up[2]);
 	}
 
+	/**
+	 * Computes the same projection and view as load3D.
+	 *
+	 * @param matrix The column-major matrix to fill.
+	 * @param tmp    A scratch matrix.
+	 */
+	public void getMatrix(float[] matrix, float[] tmp) {
+		float[] eye = {this.posX, this.posY, this.posZ};
+		float[] center = {this.posX + this.forward[0], this.posY + this.forward[1], this.posZ + this.forward[2]};
+		FloatUtil.makePerspective(matrix, 0, true, this.fov * FloatUtil.PI / 180, this.width / (float) this.height, 0.01f, 10000f);
+		FloatUtil.makeLookAt(tmp, 0, eye, 0, center, 0, this.up, 0, new float[16]);
+		FloatUtil.multMatrix(matrix, tmp);
+	}
+
 	public void load2D(GL2 gl) {
 		gl.glOrtho(0, this.width, this.height, 0, -1, 1);
 	}
 
+	/**
+	 * @return A counter incremented whenever the view changes.
+	 */
+	public int getVersion() {
+		return this.version.get();
+	}
+
+	/**
+	 * Called after the view changes so that a reader seeing the new version also sees the new view.
+	 * The camera is modified from the control loop and the event thread.
+	 */
+	private void changed() {
+		this.version.incrementAndGet();
+	}
+
 	public int getWidth() {
 		return this.width;
 	}
 
 	public void setWidth(int width) {
 		this.width = width > 0 ? width : 1;
+		changed();
 	}
 
 	public int getHeight() {
@@ -61,6 +95,7 @@ public final class Camera {
 
 	public void setHeight(int height) {
 		this.height = height > 0 ? height : 1;
+		changed();
 	}
 
 	public float getFOV() {
@@ -73,10 +108,12 @@ public final class Camera {
 		else if (value > MAX_FOV)
 			value = MAX_FOV;
 		this.fov = value;
+		changed();
 	}
 
 	public void resetFOV() {
 		this.fov = DEFAULT_FOV;
+		changed();
 	}
 
 	public void zoom(float dv) {
@@ -91,28 +128,33 @@ public final class Camera {
 		this.posX = value.x;
 		this.posY = value.y;
 		this.posZ = value.z;
+		changed();
 	}
 
 	public void setPosition(float x, float y, float z) {
 		this.posX = x;
 		this.posY = y;
 		this.posZ = z;
+		changed();
 	}
 
 	public void resetPosition() {
 		this.posX = this.posY = this.posZ = 0;
+		changed();
 	}
 
 	public void translate(float x, float y, float z) {
 		this.posX += x;
 		this.posY += y;
 		this.posZ += z;
+		changed();
 	}
 
 	public void move(float l, float u, float f) {
 		this.posX += this.left[0] * l + this.up[0] * u + this.forward[0] * f;
 		this.posY += this.left[1] * l + this.up[1] * u + this.forward[1] * f;
 		this.posZ += this.left[2] * l + this.up[2] * u + this.forward[2] * f;
+		changed();
 	}
 
 	public void resetOrientation() {
@@ -127,12 +169,14 @@ public final class Camera {
 		this.forward[0] = 0;
 		this.forward[1] = 0;
 		this.forward[2] = 1;
+		changed();
 	}
 
 	public void pitch(float angle) {
 		rotate(this.left, angle, this.up, this.forward);
 		normalize(this.up);
 		normalize(this.forward);
+		changed();
 	}
 
 	private static void rotate(float[] axis, float angle, float[]... vectors) {
@@ -164,11 +208,13 @@ public final class Camera {
 		rotate(this.up, angle, this.left, this.forward);
 		normalize(this.left);
 		normalize(this.forward);
+		changed();
 	}
 
 	public void roll(float angle) {
 		rotate(this.forward, angle, this.left, this.up);
 		normalize(this.left);
 		normalize(this.up);
+		changed();
 	}
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -30,6 +30,7 @@ import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.util.gl2.GLUT;
 import net.smoofyuniverse.lorenz.math.vector.Vector3f;
 import net.smoofyuniverse.lorenz.util.Loop;
+import net.smoofyuniverse.lorenz.util.TimeStats;
 import net.smoofyuniverse.lorenz.util.Updatable;
 
 import java.text.DecimalFormat;
@@ -45,7 +46,7 @@ public final class Controller implements Updatable, KeyListener, MouseListener {
 	private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("0.00");
 	private static final List<String> HELP = new ArrayList<>();
 
-	private final Loop renderLoop;
+	private final Loop renderLoop, processingLoop;
 	private final Camera camera;
 
 	private boolean zoomIn, zoomOut, left, right, forward, backward, up, down, speedUp, slowDown;
@@ -53,14 +54,18 @@ public final class Controller implements Updatable, KeyListener, MouseListener {
 	private double lastX, lastY;
 
 	public boolean displayDebug, displayHelp;
+	public Animator animator;
 
-	public Controller(Loop renderLoop, Camera camera) {
+	public Controller(Loop renderLoop, Loop processingLoop, Camera camera) {
 		if (renderLoop == null)
 			throw new IllegalArgumentException("renderLoop");
+		if (processingLoop == null)
+			throw new IllegalArgumentException("processingLoop");
 		if (camera == null)
 			throw new IllegalArgumentException("camera");
 
 		this.renderLoop = renderLoop;
+		this.processingLoop = processingLoop;
 		this.camera = camera;
 	}
 
@@ -68,9 +73,16 @@ public final class Controller implements Updatable, KeyListener, MouseListener {
 		if (this.displayDebug) {
 			List<String> lines = new ArrayList<>();
 			lines.add("IPS: " + (int) this.renderLoop.getCurrentFrequency() + " / " + (int) this.renderLoop.getPrefFrequency());
+			lines.add("Durée image: " + format(this.renderLoop.getFrameTimes()));
+			lines.add("Durée rendu: " + format(this.renderLoop.getUpdateTimes()));
+			lines.add("Calculs par seconde: " + (int) this.processingLoop.getCurrentFrequency() + " / " + (int) this.processingLoop.getPrefFrequency());
+			lines.add("Durée cycle de calcul: " + format(this.processingLoop.getFrameTimes()));
+			lines.add("Durée calcul: " + format(this.processingLoop.getUpdateTimes()));
 			lines.add("Champ de vision: " + format(this.camera.getFOV()) + "°");
 			lines.add("Position: " + format(this.camera.getPosition()));
 			lines.add("Vitesse: " + format(this.speed));
+			if (this.animator != null)
+				lines.add("Images dessinées: " + this.animator.getDrawnFrames() + ", ignorées: " + this.animator.getSkippedFrames());
 			renderString(gl, glut, lines, 0, 0, false);
 		}
 
@@ -160,6 +172,10 @@ public final class Controller implements Updatable, KeyListener, MouseListener {
 		return DECIMAL_FORMAT.format(value);
 	}
 
+	private static String format(TimeStats stats) {
+		return "p50 " + format(stats.getMedian() / 1E6f) + " ms, p99 " + format(stats.getPercentile(0.99) / 1E6f) + " ms, max " + format(stats.getMax() / 1E6f) + " ms";
+	}
+
 	private static String format(Vector3f value) {
 		return "(" + format(value.x) + ", " + format(value.y) + ", " + format(value.z) + ")";
 	}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.ui.gl;
+
+import net.smoofyuniverse.lorenz.math.DenseOutput;
+import net.smoofyuniverse.lorenz.math.Series;
+
+/**
+ * Points reconstructed between the samples of a series with a dense output, at the resolution needed by the view.
+ * Only the samples appended since the previous frame are interpolated as long as the range and the resolution do not change.
+ */
+final class Refinement {
+	public final Series points = new Series();
+	private final double[] previous = new double[6], next = new double[6];
+	private float[] block = new float[0];
+	private int generation, resolution;
+	private long from = -1, to;
+
+	/**
+	 * @param from       The index of the first sample.
+	 * @param to         The index after the last sample.
+	 * @param resolution The number of points drawn for each interval between two samples.
+	 */
+	public Series update(Series.Snapshot states, DenseOutput dense, long from, long to, int resolution) {
+		Series.Snapshot derivatives = dense.getDerivatives().acquireSnapshot();
+		try {
+			return update(states, derivatives, dense.getInterval(), from, Math.min(to, derivatives.size), resolution);
+		} finally {
+			derivatives.release();
+		}
+	}
+
+	private Series update(Series.Snapshot states, Series.Snapshot derivatives, double interval, long from, long to, int resolution) {
+		if (states.generation != this.generation || from != this.from || resolution != this.resolution || to < this.to) {
+			this.points.clear();
+			this.generation = states.generation;
+			this.from = from;
+			this.resolution = resolution;
+			this.to = from;
+		}
+		if (this.to >= to)
+			return this.points;
+
+		long i = this.to;
+		DenseOutput.read(states, derivatives, i == from ? i : i - 1, this.next);
+		if (i == from) {
+			this.points.add((float) this.next[0], (float) this.next[1], (float) this.next[2]);
+			i++;
+		}
+
+		if (this.block.length < resolution * 3)
+			this.block = new float[resolution * 3];
+		for (; i < to; i++) {
+			System.arraycopy(this.next, 0, this.previous, 0, 6);
+			DenseOutput.read(states, derivatives, i, this.next);
+			DenseOutput.interpolate(this.previous, this.next, interval, resolution, this.block, 0);
+			this.points.add(this.block, 0, resolution);
+		}
+
+		this.to = to;
+		this.points.commit();
+		return this.points;
+	}
+
+	public void release() {
+		this.points.release();
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -25,18 +25,25 @@ package net.smoofyuniverse.lorenz.ui.gl;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLAutoDrawable;
 import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLException;
 import com.jogamp.opengl.glu.GLU;
 import com.jogamp.opengl.util.gl2.GLUT;
+import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.lorenz.monitoring.FrameEvent;
+import org.slf4j.Logger;
 
 import static com.jogamp.opengl.GL2ES1.*;
 
 public class Renderer implements GLEventListener {
+	private static final Logger logger = ApplicationLogger.get(Renderer.class);
+
 	private final Camera camera;
 	private final ScatterChart chart;
 	private final Controller controller;
 
 	private final GLU glu = new GLU();
 	private final GLUT glut = new GLUT();
+	private Shaders shaders;
 
 	public Renderer(Camera camera, ScatterChart chart, Controller controller) {
 		if (camera == null)
@@ -70,26 +77,48 @@ public class Renderer implements GLEventListener {
 
 		gl.glEnable(GL_BLEND);
 		gl.glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+		if (gl.isGL3()) {
+			try {
+				this.shaders = new Shaders(gl.getGL3());
+				logger.info("Using shaders with OpenGL {}", gl.getContext().getGLVersion());
+			} catch (GLException e) {
+				logger.warn("Shaders are not available, falling back to the fixed function pipeline", e);
+			}
+		}
 	}
 
 	@Override
 	public void dispose(GLAutoDrawable drawable) {
+		this.chart.dispose(drawable.getGL().getGL2GL3());
+		if (this.shaders != null) {
+			this.shaders.dispose(drawable.getGL().getGL3());
+			this.shaders = null;
+		}
 	}
 
 	@Override
 	public void display(GLAutoDrawable drawable) {
+		FrameEvent event = new FrameEvent();
+		event.begin();
+
 		GL2 gl = drawable.getGL().getGL2();
 		gl.glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
 
-		// 3D Setup
-		gl.glMatrixMode(GL_PROJECTION);
-		gl.glLoadIdentity();
-		this.camera.load3D(this.glu);
-
-		// 3D Render
-		gl.glMatrixMode(GL_MODELVIEW);
-		gl.glLoadIdentity();
-		this.chart.render(gl);
+		if (this.shaders != null) {
+			// 3D Render with shaders, matrices are computed from the camera
+			this.chart.render(gl.getGL3(), this.camera, this.shaders);
+		} else {
+			// 3D Setup
+			gl.glMatrixMode(GL_PROJECTION);
+			gl.glLoadIdentity();
+			this.camera.load3D(this.glu);
+
+			// 3D Render
+			gl.glMatrixMode(GL_MODELVIEW);
+			gl.glLoadIdentity();
+			this.chart.render(gl, this.camera);
+		}
 
 		// 2D Setup
 		gl.glMatrixMode(GL_PROJECTION);
@@ -100,6 +129,14 @@ public class Renderer implements GLEventListener {
 		gl.glMatrixMode(GL_MODELVIEW);
 		gl.glLoadIdentity();
 		this.controller.render(gl, this.glut);
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.shaders = this.shaders != null;
+			event.vertices = this.chart.getDrawnVertices();
+			event.uploadedPoints = this.chart.getUploadedPoints();
+			event.commit();
+		}
 	}
 
 	@Override
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -23,19 +23,31 @@
 package net.smoofyuniverse.lorenz.ui.gl;
 
 import com.jogamp.opengl.GL2;
-import javafx.scene.paint.Color;
+import com.jogamp.opengl.GL2GL3;
+import com.jogamp.opengl.GL3;
+import net.smoofyuniverse.lorenz.math.DenseOutput;
+import net.smoofyuniverse.lorenz.math.Pyramid;
 import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.storage.QuantizedPoints;
+import net.smoofyuniverse.lorenz.math.vector.Vector3f;
 
-import java.nio.FloatBuffer;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.jogamp.opengl.GL2.*;
 
 public class ScatterChart {
+	public static final int VERTICES_PER_PIXEL = 4, MIN_VERTICES = 1 << 15, MAX_VERTICES = 1 << 21;
+
 	public final List<Series> data = new CopyOnWriteArrayList<>();
+	private final Map<Series, SeriesBuffers> buffers = new IdentityHashMap<>();
+	private final Map<Series, Refinement> refinements = new IdentityHashMap<>();
+	private final float[] matrix = new float[16], tmp = new float[16];
+	private float[] heads = new float[7 * 16];
+	private int headCount;
+	private long uploadedPoints, drawnVertices;
 
-	public void render(GL2 gl) {
+	public void render(GL2 gl, Camera camera) {
 		gl.glLineWidth(2);
 		gl.glBegin(GL_LINES);
 
@@ -66,27 +78,461 @@ public class ScatterChart {
 		gl.glEnd();
 
 		gl.glLineWidth(1);
+		Pipeline pipeline = new FixedPipeline(gl);
+		this.uploadedPoints = 0;
+		this.drawnVertices = 0;
+		this.headCount = 0;
+		gl.glEnableClientState(GL_VERTEX_ARRAY);
+		for (Series s : this.data) {
+			Series.Snapshot snapshot = s.acquireSnapshot();
+			try {
+				render(gl, pipeline, camera, s, snapshot);
+			} finally {
+				snapshot.release();
+			}
+		}
+		gl.glBindBuffer(GL_ARRAY_BUFFER, 0);
+		gl.glDisableClientState(GL_VERTEX_ARRAY);
+
+		gl.glPointSize(10);
+		gl.glBegin(GL_POINTS);
+		for (int i = 0; i < this.headCount * 7; i += 7) {
+			gl.glColor4f(this.heads[i + 3], this.heads[i + 4], this.heads[i + 5], this.heads[i + 6]);
+			gl.glVertex3f(this.heads[i], this.heads[i + 1], this.heads[i + 2]);
+		}
+		gl.glEnd();
+
+		deleteRemoved(gl);
+	}
+
+	public void render(GL3 gl, Camera camera, Shaders shaders) {
+		camera.getMatrix(this.matrix, this.tmp);
+		shaders.drawAxes(gl, this.matrix);
+
+		this.uploadedPoints = 0;
+		this.drawnVertices = 0;
+		this.headCount = 0;
+		shaders.useSeries(gl, this.matrix);
+		gl.glPointSize(1);
+		Pipeline pipeline = new ShaderPipeline(gl, shaders);
 		for (Series s : this.data) {
-			int size = s.size();
-			if (size == 0)
+			Series.Snapshot snapshot = s.acquireSnapshot();
+			try {
+				render(gl, pipeline, camera, s, snapshot);
+			} finally {
+				snapshot.release();
+			}
+		}
+
+		gl.glPointSize(10);
+		shaders.drawHeads(gl, this.matrix, this.heads, this.headCount);
+
+		gl.glBindVertexArray(0);
+		gl.glBindBuffer(GL_ARRAY_BUFFER, 0);
+		gl.glUseProgram(0);
+
+		deleteRemoved(gl);
+	}
+
+	private void deleteRemoved(GL2GL3 gl) {
+		Set<Series> alive = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Series s : this.data) {
+			alive.add(s);
+			Pyramid pyramid = s.getPyramid();
+			if (pyramid != null) {
+				for (int i = 1; i <= Pyramid.LEVELS; i++)
+					alive.add(pyramid.getLevel(i));
+			}
+		}
+		this.refinements.entrySet().removeIf(e -> {
+			if (alive.contains(e.getKey()))
+				return false;
+			e.getValue().release();
+			return true;
+		});
+		for (Refinement r : this.refinements.values())
+			alive.add(r.points);
+		this.buffers.entrySet().removeIf(e -> {
+			if (alive.contains(e.getKey()))
+				return false;
+			e.getValue().dispose(gl);
+			return true;
+		});
+	}
+
+	/**
+	 * @return A value that changes whenever a series is added, removed, extended or restyled.
+	 */
+	public long getState() {
+		long h = 1;
+		for (Series s : this.data) {
+			Series.Snapshot snapshot = s.getSnapshot();
+			h = 31 * h + System.identityHashCode(s);
+			h = 31 * h + snapshot.total;
+			h = 31 * h + snapshot.generation;
+			h = 31 * h + Float.floatToIntBits(s.getRed());
+			h = 31 * h + Float.floatToIntBits(s.getGreen());
+			h = 31 * h + Float.floatToIntBits(s.getBlue());
+			h = 31 * h + Float.floatToIntBits(s.getOpacity());
+			h = 31 * h + (s.connect ? 1 : 0);
+			h = 31 * h + s.colorMode.ordinal();
+			h = 31 * h + s.getWindowStart();
+			h = 31 * h + s.getWindowEnd();
+		}
+		return h;
+	}
+
+	/**
+	 * @return The number of points sent to the graphics card during the last frame.
+	 */
+	public long getUploadedPoints() {
+		return this.uploadedPoints;
+	}
+
+	/**
+	 * @return The number of vertices of series drawn during the last frame.
+	 */
+	public long getDrawnVertices() {
+		return this.drawnVertices;
+	}
+
+	public void dispose(GL2GL3 gl) {
+		for (SeriesBuffers b : this.buffers.values())
+			b.dispose(gl);
+		this.buffers.clear();
+		for (Refinement r : this.refinements.values())
+			r.release();
+		this.refinements.clear();
+	}
+
+	private SeriesBuffers upload(GL2GL3 gl, Series s, Series.Snapshot snapshot) {
+		SeriesBuffers b = this.buffers.computeIfAbsent(s, k -> new SeriesBuffers());
+		this.uploadedPoints += b.update(gl, snapshot);
+		return b;
+	}
+
+	private void addHead(Series s, Series.Snapshot snapshot) {
+		addHead(s, snapshot, snapshot.size - 1);
+	}
+
+	private void addHead(Series s, Series.Snapshot snapshot, long last) {
+		int pos = this.headCount * 7;
+		if (pos + 7 > this.heads.length)
+			this.heads = Arrays.copyOf(this.heads, this.heads.length * 2);
+		this.heads[pos] = snapshot.get(last, 0);
+		this.heads[pos + 1] = snapshot.get(last, 1);
+		this.heads[pos + 2] = snapshot.get(last, 2);
+		this.heads[pos + 3] = s.getRed();
+		this.heads[pos + 4] = s.getGreen();
+		this.heads[pos + 5] = s.getBlue();
+		this.heads[pos + 6] = s.getOpacity();
+		this.headCount++;
+	}
+
+	/**
+	 * @param visible The number of points of the series in the time window.
+	 * @return The index of the pyramid level to draw, 0 for the series itself.
+	 */
+	private static int select(Camera camera, Pyramid pyramid, Series.Snapshot snapshot, long visible) {
+		if (pyramid == null)
+			return 0;
+
+		// Levels are selected on their whole size, so the budget is scaled to the part in the window
+		long max = (long) Math.min(Long.MAX_VALUE, maxVertices(camera, pyramid) * (double) snapshot.size / visible);
+		Series level = pyramid.select(max);
+		int k = 0;
+		while (pyramid.getLevel(k) != level)
+			k++;
+		return k;
+	}
+
+	/**
+	 * Plans what to draw for the series, the calls specific to each pipeline are made through the given one.
+	 */
+	private void render(GL2GL3 gl, Pipeline pipeline, Camera camera, Series s, Series.Snapshot snapshot) {
+		if (snapshot.size == 0)
+			return;
+
+		int mode = s.connect ? GL_LINE_STRIP : GL_POINTS;
+		if (snapshot.ring != 0) {
+			SeriesBuffers buffers = upload(gl, s, snapshot);
+			pipeline.setSeries(s, snapshot.size, estimateStep(snapshot), snapshot.getHead(), snapshot.ring);
+			pipeline.setFirst(0);
+			if (pipeline.use(buffers, 0))
+				drawRing(gl, snapshot, mode);
+			addHead(s, snapshot);
+			return;
+		}
+
+		long from = Math.min(s.getWindowStart(), snapshot.size), to = Math.min(s.getWindowEnd(), snapshot.size);
+		if (from >= to)
+			return;
+
+		// Read once since the writer may replace them, the levels stay readable until their snapshots are released
+		Pyramid pyramid = s.getPyramid();
+		DenseOutput dense = s.getDenseOutput();
+		int k = select(camera, pyramid, snapshot, to - from), resolution = k == 0 ? resolution(camera, pyramid, dense, to - from) : 1;
+		Series refined = refine(s, snapshot, dense, from, to, resolution);
+		Series level = refined != null ? refined : k == 0 ? s : pyramid.getLevel(k);
+		Series.Snapshot levelSnapshot = level == s ? snapshot : level.acquireSnapshot();
+		try {
+			SeriesBuffers buffers = upload(gl, level, levelSnapshot);
+
+			// Colors are computed as if the drawn points were taken from a series of the same duration
+			float scale = refined != null ? resolution : levelSnapshot.size / (float) snapshot.size;
+			float step = (pyramid == null ? estimateStep(snapshot) : pyramid.getMeanStep()) / scale;
+			long offset = refined != null ? from * resolution : 0;
+			pipeline.setSeries(s, refined != null ? snapshot.size * resolution : levelSnapshot.size, step, 0, 0);
+
+			// A refinement only contains the window
+			long levelFrom = refined != null ? 0 : decimate(from, k), levelTo = refined != null ? levelSnapshot.size : Math.min(decimate(to, k), levelSnapshot.size);
+			if (levelSnapshot.quantized != null) {
+				drawQuantized(gl, pipeline, buffers, levelSnapshot.quantized, levelFrom, levelTo, mode);
+			} else {
+				int count = levelSnapshot.segmentCount();
+				for (int i = 0; i < count; i++) {
+					int length = length(levelSnapshot, i, levelFrom, levelTo, mode);
+					if (length == 0)
+						continue;
+					if (!pipeline.use(buffers, i))
+						break;
+					pipeline.setFirst(offset + ((long) i << levelSnapshot.shift));
+					draw(gl, mode, first(levelSnapshot, i, levelFrom), length);
+				}
+			}
+		} finally {
+			if (levelSnapshot != snapshot)
+				levelSnapshot.release();
+		}
+
+		addHead(s, snapshot, to - 1);
+	}
+
+	/**
+	 * @return The number of points to draw for each interval between two samples of a dense output,
+	 * 1 to draw the samples only.
+	 */
+	private static int resolution(Camera camera, Pyramid pyramid, DenseOutput dense, long visible) {
+		if (dense == null)
+			return 1;
+		long max = pyramid == null ? MAX_VERTICES : maxVertices(camera, pyramid);
+		// Powers of two so that the refinement is not computed again at every frame while the series grows
+		return Integer.highestOneBit((int) Math.max(1, Math.min(dense.getStride(), max / visible)));
+	}
+
+	/**
+	 * @return The points reconstructed between the samples of the window, or null if the samples are enough.
+	 */
+	private Series refine(Series s, Series.Snapshot snapshot, DenseOutput dense, long from, long to, int resolution) {
+		if (resolution == 1) {
+			Refinement r = this.refinements.remove(s);
+			if (r != null)
+				r.release();
+			return null;
+		}
+		return this.refinements.computeIfAbsent(s, k -> new Refinement()).update(snapshot, dense, from, to, resolution);
+	}
+
+	/**
+	 * @return The index in the given level of the first point at or after the given index of the series.
+	 */
+	private static long decimate(long index, int level) {
+		int shift = level * Pyramid.FACTOR_SHIFT;
+		return (index + (1L << shift) - 1) >>> shift;
+	}
+
+	/**
+	 * @return The offset in the segment of the first point to draw.
+	 */
+	private static int first(Series.Snapshot snapshot, int index, long from) {
+		return (int) Math.max(0, from - ((long) index << snapshot.shift));
+	}
+
+	/**
+	 * @return The number of points of the segment to draw, line strips include the first point of the next segment,
+	 * stored after the end of each buffer.
+	 */
+	private static int length(Series.Snapshot snapshot, int index, long from, long to, int mode) {
+		long start = (long) index << snapshot.shift;
+		return length(start, start + snapshot.segmentLength(index), from, to, mode);
+	}
+
+	private static int length(long start, long end, long from, long to, int mode) {
+		long length = Math.min(to, end) - Math.max(from, start);
+		if (length <= 0)
+			return 0;
+		return (int) (mode == GL_LINE_STRIP && to > end ? length + 1 : length);
+	}
+
+	/**
+	 * Draws each chunk with its own transform, line strips include the first point of the next chunk, encoded after each chunk.
+	 */
+	private void drawQuantized(GL2GL3 gl, Pipeline pipeline, SeriesBuffers buffers, QuantizedPoints points, long from, long to, int mode) {
+		for (int c = (int) (from >>> QuantizedPoints.CHUNK_SHIFT); ((long) c << QuantizedPoints.CHUNK_SHIFT) < to; c++) {
+			long start = (long) c << QuantizedPoints.CHUNK_SHIFT;
+			int length = length(start, Math.min(start + QuantizedPoints.CHUNK_SIZE, points.size()), from, to, mode);
+			if (length == 0)
 				continue;
+			if (!pipeline.use(buffers, c >>> QuantizedPoints.SEGMENT_SHIFT))
+				break;
 
-			FloatBuffer buffer = s.getBuffer();
+			// The vertex index in the buffer, offset by the two extra points of each previous chunk
+			int base = (c & (QuantizedPoints.SEGMENT_CHUNKS - 1)) * QuantizedPoints.CHUNK_STRIDE;
+			pipeline.beginChunk(points, c, start - base);
+			draw(gl, mode, chunkFirst(c, start, from), length);
+			pipeline.endChunk();
+		}
+	}
 
-			Color c = s.getColor();
-			gl.glColor4f((float) c.getRed(), (float) c.getGreen(), (float) c.getBlue(), (float) c.getOpacity());
-			gl.glPointSize(1);
+	/**
+	 * @return The index in the buffer of the first point of the chunk to draw.
+	 */
+	private static int chunkFirst(int chunk, long start, long from) {
+		return (chunk & (QuantizedPoints.SEGMENT_CHUNKS - 1)) * QuantizedPoints.CHUNK_STRIDE + (int) Math.max(0, from - start);
+	}
 
-			gl.glEnableClientState(GL_VERTEX_ARRAY);
-			gl.glVertexPointer(3, GL_FLOAT, 0, buffer);
-			gl.glDrawArrays(s.connect ? GL_LINE_STRIP : GL_POINTS, 0, size);
-			gl.glDisableClientState(GL_VERTEX_ARRAY);
+	/**
+	 * Estimates the average distance between consecutive points from the last ones.
+	 */
+	private static float estimateStep(Series.Snapshot snapshot) {
+		long size = snapshot.size;
+		int n = (int) Math.min(size - 1, 64);
+		if (n <= 0)
+			return 0;
 
-			gl.glPointSize(10);
-			gl.glBegin(GL_POINTS);
-			int pos = (size - 1) * 3;
-			gl.glVertex3f(buffer.get(pos), buffer.get(pos + 1), buffer.get(pos + 2));
-			gl.glEnd();
+		double length = 0;
+		for (long i = size - n; i < size; i++) {
+			float dx = snapshot.get(i, 0) - snapshot.get(i - 1, 0), dy = snapshot.get(i, 1) - snapshot.get(i - 1, 1), dz = snapshot.get(i, 2) - snapshot.get(i - 1, 2);
+			length += Math.sqrt(dx * dx + dy * dy + dz * dz);
 		}
+		return (float) (length / n);
+	}
+
+	/**
+	 * Estimates how many vertices are needed for the series to look the same, from its size on screen.
+	 */
+	private static long maxVertices(Camera camera, Pyramid pyramid) {
+		Vector3f pos = camera.getPosition();
+		float dx = pyramid.getCenterX() - pos.x, dy = pyramid.getCenterY() - pos.y, dz = pyramid.getCenterZ() - pos.z;
+		double distance = Math.sqrt(dx * dx + dy * dy + dz * dz), radius = pyramid.getRadius();
+		if (distance <= radius)
+			return MAX_VERTICES;
+
+		double pixels = radius * camera.getHeight() / (distance * Math.tan(Math.toRadians(camera.getFOV()) / 2));
+		pixels = Math.min(pixels, Math.max(camera.getWidth(), camera.getHeight()));
+		return (long) Math.max(MIN_VERTICES, Math.min(MAX_VERTICES, pixels * pixels * VERTICES_PER_PIXEL));
+	}
+
+	private void drawRing(GL2GL3 gl, Series.Snapshot snapshot, int mode) {
+		int ring = snapshot.ring, head = snapshot.getHead();
+		if (head == 0) {
+			draw(gl, mode, 0, (int) snapshot.size);
+		} else {
+			// The point after the end mirrors the first point, joining both parts
+			draw(gl, mode, head, ring + 1 - head);
+			draw(gl, mode, 0, head);
+		}
+	}
+
+	private void draw(GL2GL3 gl, int mode, int first, int count) {
+		gl.glDrawArrays(mode, first, count);
+		this.drawnVertices += count;
+	}
+
+	/**
+	 * The calls specific to each pipeline, the draw planning is shared.
+	 */
+	private interface Pipeline {
+
+		/**
+		 * @param size The size of the series the drawn points are taken from, for colors.
+		 * @param step The mean distance between drawn points.
+		 */
+		void setSeries(Series s, long size, float step, int head, int ring);
+
+		/**
+		 * Binds the buffer of the segment.
+		 *
+		 * @return Whether the segment has been uploaded.
+		 */
+		boolean use(SeriesBuffers buffers, int index);
+
+		/**
+		 * @param first The index in the series of the first vertex of the bound buffer.
+		 */
+		void setFirst(long first);
+
+		void beginChunk(QuantizedPoints points, int chunk, long first);
+
+		void endChunk();
+	}
+
+	private static final class FixedPipeline implements Pipeline {
+		private final GL2 gl;
+
+		FixedPipeline(GL2 gl) {
+			this.gl = gl;
+		}
+
+		@Override
+		public void setSeries(Series s, long size, float step, int head, int ring) {
+			this.gl.glColor4f(s.getRed(), s.getGreen(), s.getBlue(), s.getOpacity());
+			this.gl.glPointSize(1);
+		}
+
+		@Override
+		public boolean use(SeriesBuffers buffers, int index) {
+			return buffers.use(this.gl, index);
+		}
+
+		@Override
+		public void setFirst(long first) {}
+
+		@Override
+		public void beginChunk(QuantizedPoints points, int chunk, long first) {
+			this.gl.glPushMatrix();
+			this.gl.glTranslatef(points.getOrigin(chunk, 0), points.getOrigin(chunk, 1), points.getOrigin(chunk, 2));
+			this.gl.glScalef(points.getScale(chunk, 0), points.getScale(chunk, 1), points.getScale(chunk, 2));
+		}
+
+		@Override
+		public void endChunk() {
+			this.gl.glPopMatrix();
+		}
+	}
+
+	private static final class ShaderPipeline implements Pipeline {
+		private final GL3 gl;
+		private final Shaders shaders;
+
+		ShaderPipeline(GL3 gl, Shaders shaders) {
+			this.gl = gl;
+			this.shaders = shaders;
+		}
+
+		@Override
+		public void setSeries(Series s, long size, float step, int head, int ring) {
+			this.shaders.setSeries(this.gl, s.getRed(), s.getGreen(), s.getBlue(), s.getOpacity(), s.colorMode.ordinal(), size, step, head, ring);
+		}
+
+		@Override
+		public boolean use(SeriesBuffers buffers, int index) {
+			return buffers.use(this.gl, index);
+		}
+
+		@Override
+		public void setFirst(long first) {
+			this.shaders.setFirst(this.gl, first);
+		}
+
+		@Override
+		public void beginChunk(QuantizedPoints points, int chunk, long first) {
+			this.shaders.setTransform(this.gl, points.getOrigin(chunk, 0), points.getOrigin(chunk, 1), points.getOrigin(chunk, 2),
+					points.getScale(chunk, 0), points.getScale(chunk, 1), points.getScale(chunk, 2));
+			this.shaders.setFirst(this.gl, first);
+		}
+
+		@Override
+		public void endChunk() {}
 	}
 }
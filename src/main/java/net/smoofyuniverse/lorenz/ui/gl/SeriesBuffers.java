@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.ui.gl;
+
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2GL3;
+import com.jogamp.opengl.GL3;
+import net.smoofyuniverse.lorenz.math.Series;
+import net.smoofyuniverse.lorenz.math.storage.QuantizedPoints;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static com.jogamp.opengl.GL2.*;
+
+/**
+ * Vertex buffer objects mirroring the segments of a series.
+ * Only the points appended since the previous frame are uploaded.
+ * Each buffer has one more vertex than its segment, holding the first point of the next segment,
+ * so that consecutive segments can be drawn as continuous strips, and one more so that each drawn vertex can read its successor.
+ * Quantized points are uploaded as they are, as signed shorts.
+ */
+final class SeriesBuffers {
+	private int[] ids = new int[0], arrays = new int[0];
+	private long[] sizes = new long[0];
+	private int count;
+	private int shift, ring, generation;
+	private QuantizedPoints quantized;
+	private long uploaded;
+
+	/**
+	 * Uploads the points committed since the last call.
+	 *
+	 * @return The number of points uploaded.
+	 */
+	public long update(GL2GL3 gl, Series.Snapshot snapshot) {
+		if (snapshot.shift != this.shift || snapshot.ring != this.ring || snapshot.quantized != this.quantized) {
+			dispose(gl);
+			this.shift = snapshot.shift;
+			this.ring = snapshot.ring;
+			this.quantized = snapshot.quantized;
+			this.generation = snapshot.generation;
+		} else if (snapshot.generation != this.generation) {
+			this.generation = snapshot.generation;
+			this.uploaded = 0;
+		}
+
+		if (snapshot.quantized != null)
+			return updateQuantized(gl, snapshot.quantized);
+		if (snapshot.ring != 0)
+			return updateRing(gl, snapshot);
+
+		int shift = snapshot.shift;
+		long mask = (1L << shift) - 1, size = snapshot.size;
+		long from = this.uploaded, total = 0;
+		while (from < size) {
+			int index = (int) (from >>> shift);
+			FloatBuffer segment = snapshot.segments[index];
+			// A partial segment has been replaced by a larger one
+			if (bind(gl, index, (segment.capacity() + 6) * 4L))
+				from &= ~mask;
+
+			int offset = (int) (from & mask);
+			int n = (int) Math.min(size - from, segment.capacity() / 3 - offset);
+			subData(gl, segment, offset, offset, n);
+
+			if (offset == 0 && index != 0) {
+				FloatBuffer previous = snapshot.segments[index - 1];
+				int length = previous.capacity() / 3;
+				if (bind(gl, index - 1, (previous.capacity() + 6) * 4L)) {
+					subData(gl, previous, 0, 0, length);
+					total += length;
+				}
+				subData(gl, segment, 0, length, 1);
+			}
+			from += n;
+			total += n;
+		}
+
+		this.uploaded = from;
+		return total;
+	}
+
+	private long updateRing(GL2GL3 gl, Series.Snapshot snapshot) {
+		if (snapshot.segments.length == 0)
+			return 0;
+
+		FloatBuffer buffer = snapshot.segments[0];
+		int ring = snapshot.ring;
+		long total = snapshot.total, n = total - this.uploaded;
+		bind(gl, 0, (buffer.capacity() + 6) * 4L);
+
+		if (n >= ring) {
+			subData(gl, buffer, 0, 0, ring + 1);
+			n = ring + 1;
+		} else if (n > 0) {
+			int start = (int) (this.uploaded % ring), end = (int) (total % ring);
+			if (start < end) {
+				subData(gl, buffer, start, start, end - start);
+			} else {
+				subData(gl, buffer, start, start, ring - start);
+				subData(gl, buffer, 0, 0, end);
+			}
+			// The mirror of the first point
+			if (start == 0 || (start > end && end != 0))
+				subData(gl, buffer, ring, ring, 1);
+		}
+
+		this.uploaded = total;
+		return n;
+	}
+
+	/**
+	 * Quantized points never change so they are uploaded once.
+	 */
+	private long updateQuantized(GL2GL3 gl, QuantizedPoints quantized) {
+		if (this.uploaded == quantized.size())
+			return 0;
+
+		for (int i = 0; i < quantized.segmentCount(); i++) {
+			ByteBuffer segment = quantized.getSegment(i);
+			bind(gl, i, segment.capacity() + QuantizedPoints.POINT_BYTES);
+			gl.glBufferSubData(GL_ARRAY_BUFFER, 0, segment.capacity(), segment);
+		}
+
+		this.uploaded = quantized.size();
+		return this.uploaded;
+	}
+
+	/**
+	 * Binds the buffer of the segment, creating it or growing it to the given size.
+	 *
+	 * @param size The size of the buffer, in bytes.
+	 * @return Whether the buffer has been created or grown, its content is then undefined.
+	 */
+	private boolean bind(GL2GL3 gl, int index, long size) {
+		if (index >= this.count) {
+			if (index >= this.ids.length) {
+				int length = Math.max(index + 1, this.ids.length * 2);
+				this.ids = Arrays.copyOf(this.ids, length);
+				this.arrays = Arrays.copyOf(this.arrays, length);
+				this.sizes = Arrays.copyOf(this.sizes, length);
+			}
+			gl.glGenBuffers(index + 1 - this.count, this.ids, this.count);
+			for (int i = this.count; i <= index; i++) {
+				gl.glBindBuffer(GL_ARRAY_BUFFER, this.ids[i]);
+				gl.glBufferData(GL_ARRAY_BUFFER, size, null, GL_DYNAMIC_DRAW);
+				this.sizes[i] = size;
+			}
+			this.count = index + 1;
+			return true;
+		}
+
+		gl.glBindBuffer(GL_ARRAY_BUFFER, this.ids[index]);
+		if (this.sizes[index] >= size)
+			return false;
+		gl.glBufferData(GL_ARRAY_BUFFER, size, null, GL_DYNAMIC_DRAW);
+		this.sizes[index] = size;
+		return true;
+	}
+
+	private static void subData(GL2GL3 gl, FloatBuffer buffer, int offset, int target, int length) {
+		if (length <= 0)
+			return;
+		FloatBuffer data = buffer.duplicate();
+		data.limit((offset + length) * 3).position(offset * 3);
+		gl.glBufferSubData(GL_ARRAY_BUFFER, target * 12L, length * 12L, data);
+	}
+
+	/**
+	 * Binds the buffer of the segment and points the vertex array to it.
+	 *
+	 * @return Whether the segment has been uploaded.
+	 */
+	public boolean use(GL2 gl, int index) {
+		if (index >= this.count)
+			return false;
+		gl.glBindBuffer(GL_ARRAY_BUFFER, this.ids[index]);
+		gl.glVertexPointer(3, this.quantized == null ? GL_FLOAT : GL_SHORT, 0, 0L);
+		return true;
+	}
+
+	/**
+	 * Binds the vertex array of the segment.
+	 * Attribute 0 is the position and attribute 1 the position of the next vertex.
+	 *
+	 * @return Whether the segment has been uploaded.
+	 */
+	public boolean use(GL3 gl, int index) {
+		if (index >= this.count)
+			return false;
+
+		if (this.arrays[index] == 0) {
+			gl.glGenVertexArrays(1, this.arrays, index);
+			gl.glBindVertexArray(this.arrays[index]);
+			gl.glBindBuffer(GL_ARRAY_BUFFER, this.ids[index]);
+			int type = this.quantized == null ? GL_FLOAT : GL_SHORT, stride = this.quantized == null ? 12 : QuantizedPoints.POINT_BYTES;
+			gl.glEnableVertexAttribArray(0);
+			gl.glVertexAttribPointer(0, 3, type, false, stride, 0L);
+			gl.glEnableVertexAttribArray(1);
+			gl.glVertexAttribPointer(1, 3, type, false, stride, stride);
+		} else {
+			gl.glBindVertexArray(this.arrays[index]);
+		}
+		return true;
+	}
+
+	public void dispose(GL2GL3 gl) {
+		if (this.count != 0) {
+			gl.glDeleteBuffers(this.count, this.ids, 0);
+			for (int i = 0; i < this.count; i++) {
+				if (this.arrays[i] != 0) {
+					gl.glDeleteVertexArrays(1, this.arrays, i);
+					this.arrays[i] = 0;
+				}
+			}
+		}
+		this.count = 0;
+		this.uploaded = 0;
+	}
+}
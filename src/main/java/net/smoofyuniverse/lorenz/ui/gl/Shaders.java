@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.ui.gl;
+
+import com.jogamp.opengl.GL3;
+import com.jogamp.opengl.GLException;
+import com.jogamp.opengl.util.GLBuffers;
+
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.jogamp.opengl.GL3.*;
+
+/**
+ * Shader programs and static geometry of the programmable pipeline.
+ * Only core profile features are used.
+ */
+public final class Shaders {
+	private static final String SERIES_VERTEX = String.join("\n",
+			"#version 130",
+			"uniform mat4 u_matrix;",
+			"uniform vec4 u_color;",
+			"uniform int u_mode, u_first, u_head, u_ring;",
+			"uniform float u_count, u_step;",
+			"uniform vec3 u_origin, u_scale;",
+			"in vec3 a_position;",
+			"in vec3 a_next;",
+			"out vec4 v_color;",
+			"void main() {",
+			"	vec3 position = u_origin + a_position * u_scale, next = u_origin + a_next * u_scale;",
+			"	gl_Position = u_matrix * vec4(position, 1.0);",
+			"	if (u_mode == 1) {",
+			"		int i = u_first + gl_VertexID;",
+			"		if (u_ring > 0)",
+			"			i = (i % u_ring - u_head + u_ring) % u_ring;",
+			"		v_color = vec4(u_color.rgb * mix(0.15, 1.0, float(i) / u_count), u_color.a);",
+			"	} else if (u_mode == 2) {",
+			"		float k = clamp(distance(next, position) / (2.0 * u_step), 0.0, 1.0);",
+			"		v_color = vec4(mix(vec3(0.1, 0.3, 1.0), vec3(1.0, 0.2, 0.1), k), u_color.a);",
+			"	} else {",
+			"		v_color = u_color;",
+			"	}",
+			"}");
+
+	private static final String COLORED_VERTEX = String.join("\n",
+			"#version 130",
+			"uniform mat4 u_matrix;",
+			"in vec3 a_position;",
+			"in vec4 a_color;",
+			"out vec4 v_color;",
+			"void main() {",
+			"	gl_Position = u_matrix * vec4(a_position, 1.0);",
+			"	v_color = a_color;",
+			"}");
+
+	private static final String FRAGMENT = String.join("\n",
+			"#version 130",
+			"in vec4 v_color;",
+			"out vec4 f_color;",
+			"void main() {",
+			"	f_color = v_color;",
+			"}");
+
+	private static final float[] AXES = {
+			0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0, 0, 1,
+			1, 0, 0, 1, 0, 0, 0.4f, 10, 0, 0, 1, 0, 0, 0.4f,
+			0, 0, 0, 0, 1, 0, 1, 0, 1, 0, 0, 1, 0, 1,
+			0, 1, 0, 0, 1, 0, 0.4f, 0, 10, 0, 0, 1, 0, 0.4f,
+			0, 0, 0, 0, 0, 1, 1, 0, 0, 1, 0, 0, 1, 1,
+			0, 0, 1, 0, 0, 1, 0.4f, 0, 0, 10, 0, 0, 1, 0.4f
+	};
+
+	private final int series, colored;
+	private final int uMatrix, uColor, uMode, uFirst, uHead, uRing, uCount, uStep, uOrigin, uScale, uColoredMatrix;
+	private final int[] buffers = new int[2], arrays = new int[2];
+	private FloatBuffer heads = GLBuffers.newDirectFloatBuffer(7 * 16);
+
+	public Shaders(GL3 gl) {
+		this.series = link(gl, SERIES_VERTEX, "a_next");
+		this.colored = link(gl, COLORED_VERTEX, "a_color");
+
+		this.uMatrix = gl.glGetUniformLocation(this.series, "u_matrix");
+		this.uColor = gl.glGetUniformLocation(this.series, "u_color");
+		this.uMode = gl.glGetUniformLocation(this.series, "u_mode");
+		this.uFirst = gl.glGetUniformLocation(this.series, "u_first");
+		this.uHead = gl.glGetUniformLocation(this.series, "u_head");
+		this.uRing = gl.glGetUniformLocation(this.series, "u_ring");
+		this.uCount = gl.glGetUniformLocation(this.series, "u_count");
+		this.uStep = gl.glGetUniformLocation(this.series, "u_step");
+		this.uOrigin = gl.glGetUniformLocation(this.series, "u_origin");
+		this.uScale = gl.glGetUniformLocation(this.series, "u_scale");
+		this.uColoredMatrix = gl.glGetUniformLocation(this.colored, "u_matrix");
+
+		gl.glGenBuffers(2, this.buffers, 0);
+		gl.glGenVertexArrays(2, this.arrays, 0);
+		for (int i = 0; i < 2; i++) {
+			gl.glBindVertexArray(this.arrays[i]);
+			gl.glBindBuffer(GL_ARRAY_BUFFER, this.buffers[i]);
+			if (i == 0)
+				gl.glBufferData(GL_ARRAY_BUFFER, AXES.length * 4L, FloatBuffer.wrap(AXES), GL_STATIC_DRAW);
+			gl.glEnableVertexAttribArray(0);
+			gl.glVertexAttribPointer(0, 3, GL_FLOAT, false, 28, 0L);
+			gl.glEnableVertexAttribArray(1);
+			gl.glVertexAttribPointer(1, 4, GL_FLOAT, false, 28, 12L);
+		}
+		gl.glBindVertexArray(0);
+		gl.glBindBuffer(GL_ARRAY_BUFFER, 0);
+	}
+
+	private static int link(GL3 gl, String vertex, String attribute) {
+		int program = gl.glCreateProgram();
+		int vs = compile(gl, GL_VERTEX_SHADER, vertex), fs = compile(gl, GL_FRAGMENT_SHADER, FRAGMENT);
+		gl.glAttachShader(program, vs);
+		gl.glAttachShader(program, fs);
+		gl.glBindAttribLocation(program, 0, "a_position");
+		gl.glBindAttribLocation(program, 1, attribute);
+		gl.glBindFragDataLocation(program, 0, "f_color");
+		gl.glLinkProgram(program);
+		gl.glDeleteShader(vs);
+		gl.glDeleteShader(fs);
+
+		int[] status = new int[1];
+		gl.glGetProgramiv(program, GL_LINK_STATUS, status, 0);
+		if (status[0] == 0) {
+			String log = programLog(gl, program);
+			gl.glDeleteProgram(program);
+			throw new GLException("Failed to link program: " + log);
+		}
+		return program;
+	}
+
+	private static int compile(GL3 gl, int type, String source) {
+		int shader = gl.glCreateShader(type);
+		gl.glShaderSource(shader, 1, new String[]{source}, null, 0);
+		gl.glCompileShader(shader);
+
+		int[] status = new int[1];
+		gl.glGetShaderiv(shader, GL_COMPILE_STATUS, status, 0);
+		if (status[0] == 0) {
+			int[] length = new int[1];
+			gl.glGetShaderiv(shader, GL_INFO_LOG_LENGTH, length, 0);
+			byte[] log = new byte[Math.max(length[0], 1)];
+			gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+			gl.glDeleteShader(shader);
+			throw new GLException("Failed to compile shader: " + new String(log, 0, length[0], StandardCharsets.UTF_8));
+		}
+		return shader;
+	}
+
+	private static String programLog(GL3 gl, int program) {
+		int[] length = new int[1];
+		gl.glGetProgramiv(program, GL_INFO_LOG_LENGTH, length, 0);
+		byte[] log = new byte[Math.max(length[0], 1)];
+		gl.glGetProgramInfoLog(program, log.length, length, 0, log, 0);
+		return new String(log, 0, length[0], StandardCharsets.UTF_8);
+	}
+
+	public void drawAxes(GL3 gl, float[] matrix) {
+		gl.glUseProgram(this.colored);
+		gl.glUniformMatrix4fv(this.uColoredMatrix, 1, false, matrix, 0);
+		gl.glBindVertexArray(this.arrays[0]);
+		gl.glDrawArrays(GL_LINES, 0, AXES.length / 7);
+	}
+
+	public void useSeries(GL3 gl, float[] matrix) {
+		gl.glUseProgram(this.series);
+		gl.glUniformMatrix4fv(this.uMatrix, 1, false, matrix, 0);
+	}
+
+	/**
+	 * Sets the uniforms of the series program for the next draw calls.
+	 *
+	 * @param count The number of points of the drawn series.
+	 * @param step  The average distance between consecutive drawn points.
+	 */
+	public void setSeries(GL3 gl, float red, float green, float blue, float opacity, int mode, long count, float step, int head, int ring) {
+		gl.glUniform4f(this.uColor, red, green, blue, opacity);
+		gl.glUniform1i(this.uMode, mode);
+		gl.glUniform1f(this.uCount, Math.max(count - 1, 1));
+		gl.glUniform1f(this.uStep, step > 0 ? step : 1);
+		gl.glUniform1i(this.uHead, head);
+		gl.glUniform1i(this.uRing, ring);
+		setTransform(gl, 0, 0, 0, 1, 1, 1);
+	}
+
+	/**
+	 * Sets the transform applied to the positions of the next draw calls, used to decode quantized points.
+	 */
+	public void setTransform(GL3 gl, float originX, float originY, float originZ, float scaleX, float scaleY, float scaleZ) {
+		gl.glUniform3f(this.uOrigin, originX, originY, originZ);
+		gl.glUniform3f(this.uScale, scaleX, scaleY, scaleZ);
+	}
+
+	public void setFirst(GL3 gl, long first) {
+		gl.glUniform1i(this.uFirst, (int) first);
+	}
+
+	/**
+	 * @param data  Position and color of each head, 7 floats per head.
+	 * @param count The number of heads.
+	 */
+	public void drawHeads(GL3 gl, float[] matrix, float[] data, int count) {
+		if (count == 0)
+			return;
+
+		if (this.heads.capacity() < count * 7)
+			this.heads = GLBuffers.newDirectFloatBuffer(count * 14);
+		this.heads.clear();
+		this.heads.put(data, 0, count * 7).flip();
+
+		gl.glUseProgram(this.colored);
+		gl.glUniformMatrix4fv(this.uColoredMatrix, 1, false, matrix, 0);
+		gl.glBindVertexArray(this.arrays[1]);
+		gl.glBindBuffer(GL_ARRAY_BUFFER, this.buffers[1]);
+		gl.glBufferData(GL_ARRAY_BUFFER, count * 28L, this.heads, GL_STREAM_DRAW);
+		gl.glDrawArrays(GL_POINTS, 0, count);
+	}
+
+	public void dispose(GL3 gl) {
+		gl.glDeleteVertexArrays(2, this.arrays, 0);
+		gl.glDeleteBuffers(2, this.buffers, 0);
+		gl.glDeleteProgram(this.series);
+		gl.glDeleteProgram(this.colored);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2019-2021 Hugo Dupanloup (Yeregorix)
+ * Copyright (c) 2019-2026 Hugo Dupanloup (Yeregorix)
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -24,23 +24,46 @@ package net.smoofyuniverse.lorenz.util;
 
 import net.smoofyuniverse.common.app.State;
 import net.smoofyuniverse.common.logger.ApplicationLogger;
+import net.smoofyuniverse.lorenz.monitoring.LoopTickEvent;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Runs updatables at a fixed rate in a dedicated thread.
+ * Iterations are scheduled at absolute deadlines so that the rate does not drift.
+ */
 public final class Loop {
 	private static final Logger logger = ApplicationLogger.get(Loop.class);
-	private static int tasks = 0;
+	private static final long SPIN_THRESHOLD = 1_000_000L;
+	private static final int MAX_CATCH_UP = 5, STATS_SIZE = 512;
 
-	public final List<Updatable> updatables = new ArrayList<>();
-	private int nanoPeriod;
+	/**
+	 * Can be modified from any thread, changes are visible at the next iteration.
+	 */
+	public final List<Updatable> updatables = new CopyOnWriteArrayList<>();
+	private final String name;
+	private final TimeStats frameTimes = new TimeStats(STATS_SIZE), updateTimes = new TimeStats(STATS_SIZE);
+	private volatile long nanoPeriod;
+	private volatile Overrun overrun = Overrun.SKIP;
+	private volatile ForkJoinPool pool;
 	private Task task;
 
-	public Loop() {
+	public Loop(String name) {
+		if (name == null)
+			throw new IllegalArgumentException("name");
+		this.name = name;
 		State.SHUTDOWN.newListener(e -> stop(), 0).register();
 	}
 
+	public String getName() {
+		return this.name;
+	}
+
 	public void stop() {
 		if (this.task == null)
 			return;
@@ -52,10 +75,10 @@ public final class Loop {
 	public void setPrefFrequency(double f) {
 		if (f <= 0)
 			throw new IllegalArgumentException();
-		this.nanoPeriod = (int) (1E9 / f);
+		this.nanoPeriod = (long) (1E9 / f);
 	}
 
-	public void setPrefPeriod(int nano) {
+	public void setPrefPeriod(long nano) {
 		if (nano < 0)
 			throw new IllegalArgumentException();
 		this.nanoPeriod = nano;
@@ -65,7 +88,7 @@ public final class Loop {
 		return 1E9 / (double) getPrefPeriod();
 	}
 
-	public int getPrefPeriod() {
+	public long getPrefPeriod() {
 		return this.nanoPeriod;
 	}
 
@@ -73,11 +96,58 @@ public final class Loop {
 		return 1E9 / (double) getCurrentPeriod();
 	}
 
-	public int getCurrentPeriod() {
+	/**
+	 * @return The duration of the last iteration, from its start to the start of the next one.
+	 */
+	public long getCurrentPeriod() {
 		if (this.task == null)
 			return 0;
-		int d = this.task.nanoDelta;
-		return d < this.nanoPeriod ? this.nanoPeriod : d;
+		return this.task.nanoDelta;
+	}
+
+	/**
+	 * @return The time between the starts of consecutive iterations.
+	 */
+	public TimeStats getFrameTimes() {
+		return this.frameTimes;
+	}
+
+	/**
+	 * @return The time spent updating in each iteration.
+	 */
+	public TimeStats getUpdateTimes() {
+		return this.updateTimes;
+	}
+
+	public void setOverrun(Overrun overrun) {
+		if (overrun == null)
+			throw new IllegalArgumentException("overrun");
+		this.overrun = overrun;
+	}
+
+	public Overrun getOverrun() {
+		return this.overrun;
+	}
+
+	/**
+	 * Sets the pool used to update all updatables concurrently, or null to update them sequentially in the loop thread.
+	 * An iteration waits for the updates until its deadline at most.
+	 * An updatable whose update is still running at the next iteration is skipped for that iteration.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	/**
+	 * @return The number of updatables that can run at the same time.
+	 */
+	public int getParallelism() {
+		ForkJoinPool p = this.pool;
+		return p == null ? 1 : p.getParallelism();
 	}
 
 	public void start() {
@@ -85,7 +155,7 @@ public final class Loop {
 			return;
 
 		this.task = new Task();
-		this.task.setName("Loop-" + tasks++);
+		this.task.setName(this.name + " Loop");
 		this.task.start();
 	}
 
@@ -93,14 +163,38 @@ public final class Loop {
 		return this.task != null;
 	}
 
+	/**
+	 * Sleeps until the given {@link System#nanoTime()}.
+	 * Parking is not precise, so the last part is spent spinning.
+	 */
+	private static void waitUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD)
+			LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+		while (deadline - System.nanoTime() > 0)
+			Thread.onSpinWait();
+	}
+
+	/**
+	 * What to do when iterations take longer than the period.
+	 */
+	public enum Overrun {
+		/**
+		 * Runs the late iterations back to back, up to a few periods.
+		 */
+		CATCH_UP,
+		/**
+		 * Drops the late iterations and resumes at the next deadline.
+		 */
+		SKIP
+	}
+
 	private class Task extends Thread {
-		private boolean run = true;
-		private int nanoDelta = 0;
+		private volatile boolean run = true;
+		private volatile long nanoDelta = 0;
 
 		@Override
 		public void run() {
-			long t = System.nanoTime();
-
 			for (Updatable u : Loop.this.updatables) {
 				try {
 					u.init();
@@ -109,28 +203,60 @@ public final class Loop {
 				}
 			}
 
+			Map<Updatable, CompletableFuture<Void>> running = new IdentityHashMap<>();
+			long start = System.nanoTime(), deadline = start;
 			while (this.run) {
-				for (Updatable u : Loop.this.updatables) {
-					try {
-						u.update();
-					} catch (Exception e) {
-						logger.error("Updatable {} failed to update", u, e);
+				LoopTickEvent event = new LoopTickEvent();
+				event.begin();
+
+				long period = Loop.this.nanoPeriod;
+				deadline += period;
+
+				int skipped = 0;
+				boolean pending = false;
+				ForkJoinPool p = Loop.this.pool;
+				if (p == null) {
+					for (Updatable u : Loop.this.updatables)
+						update(u);
+				} else {
+					running.values().removeIf(CompletableFuture::isDone);
+					for (Updatable u : Loop.this.updatables) {
+						if (running.containsKey(u))
+							skipped++;
+						else
+							running.put(u, CompletableFuture.runAsync(() -> update(u), p));
 					}
+					pending = !await(running, deadline);
 				}
+				Loop.this.updateTimes.record(System.nanoTime() - start);
 
-				long t2 = System.nanoTime();
-				this.nanoDelta = (int) (t2 - t);
-				int remaining = Loop.this.nanoPeriod - this.nanoDelta;
-				if (remaining > 0) {
-					try {
-						Thread.sleep(remaining / 1_000_000, remaining % 1_000_000);
-					} catch (InterruptedException e) {
-						logger.error("Interruption", e);
-					}
+				event.end();
+				if (event.shouldCommit()) {
+					event.loop = Loop.this.name;
+					event.updatables = Loop.this.updatables.size();
+					event.skipped = skipped;
+					event.commit();
+				}
+
+				// Updates left running end the iteration at its deadline, it is not late
+				long now = System.nanoTime();
+				if (!pending && now - deadline > 0) {
+					long late = (now - deadline) / Math.max(period, 1);
+					if (Loop.this.overrun == Overrun.SKIP || late >= MAX_CATCH_UP)
+						deadline += (late + 1) * period;
 				}
-				t = t2;
+
+				waitUntil(deadline);
+
+				long next = System.nanoTime();
+				this.nanoDelta = next - start;
+				Loop.this.frameTimes.record(this.nanoDelta);
+				start = next;
 			}
 
+			for (CompletableFuture<Void> f : running.values())
+				f.exceptionally(e -> null).join();
+
 			for (Updatable u : Loop.this.updatables) {
 				try {
 					u.dispose();
@@ -139,5 +265,40 @@ public final class Loop {
 				}
 			}
 		}
+
+		/**
+		 * Waits for the running updates until the deadline, the remaining ones are left running.
+		 * Unlike a fork/join task, a future is never executed by the thread waiting for it.
+		 *
+		 * @return Whether all updates are done.
+		 */
+		private boolean await(Map<Updatable, CompletableFuture<Void>> running, long deadline) {
+			for (CompletableFuture<Void> f : running.values()) {
+				if (f.isDone())
+					continue;
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				try {
+					f.get(remaining, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					return false;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				} catch (ExecutionException | CancellationException e) {
+					logger.error("Update task failed", e);
+				}
+			}
+			return true;
+		}
+
+		private void update(Updatable u) {
+			try {
+				u.update();
+			} catch (Exception e) {
+				logger.error("Updatable {} failed to update", u, e);
+			}
+		}
 	}
 }
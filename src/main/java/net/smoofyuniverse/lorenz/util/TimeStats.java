@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026 Hugo Dupanloup (Yeregorix)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package net.smoofyuniverse.lorenz.util;
+
+import java.util.Arrays;
+
+/**
+ * Sliding window over the last recorded durations, from which percentiles are computed.
+ */
+public final class TimeStats {
+	private final long[] samples, sorted;
+	private int count, position;
+	private boolean dirty;
+
+	public TimeStats(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity");
+		this.samples = new long[capacity];
+		this.sorted = new long[capacity];
+	}
+
+	public synchronized void record(long nanos) {
+		this.samples[this.position] = nanos;
+		this.position = (this.position + 1) % this.samples.length;
+		if (this.count < this.samples.length)
+			this.count++;
+		this.dirty = true;
+	}
+
+	public synchronized void clear() {
+		this.count = 0;
+		this.position = 0;
+		this.dirty = true;
+	}
+
+	public synchronized int count() {
+		return this.count;
+	}
+
+	/**
+	 * @param p The percentile, between 0 and 1.
+	 * @return The duration in nanoseconds below which the given fraction of samples lies, or 0 if empty.
+	 */
+	public synchronized long getPercentile(double p) {
+		if (p < 0 || p > 1)
+			throw new IllegalArgumentException("p");
+		if (this.count == 0)
+			return 0;
+
+		if (this.dirty) {
+			System.arraycopy(this.samples, 0, this.sorted, 0, this.count);
+			Arrays.sort(this.sorted, 0, this.count);
+			this.dirty = false;
+		}
+		return this.sorted[(int) Math.ceil(p * this.count) - (p == 0 ? 0 : 1)];
+	}
+
+	public long getMedian() {
+		return getPercentile(0.5);
+	}
+
+	public long getMax() {
+		return getPercentile(1);
+	}
+}